@@ -3,6 +3,9 @@ package com.example.shopbackend.demo.common;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -23,6 +26,15 @@ public class GlobalExceptionHandler {
                                 Map.of());
         }
 
+        @ExceptionHandler(InvalidRefreshTokenException.class)
+        @ResponseStatus(HttpStatus.UNAUTHORIZED)
+        public ApiError handleInvalidRefreshToken(InvalidRefreshTokenException ex) {
+                return new ApiError(
+                                "INVALID_REFRESH_TOKEN",
+                                ex.getMessage(),
+                                Map.of());
+        }
+
         @ExceptionHandler(EmailAlreadyInUseException.class)
         @ResponseStatus(HttpStatus.CONFLICT)
         public ApiError handleEmailAlreadyInUse(EmailAlreadyInUseException ex) {
@@ -110,6 +122,43 @@ public class GlobalExceptionHandler {
                                                 "to", ex.getTo()));
         }
 
+        @ExceptionHandler(InvalidCursorException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ApiError handleInvalidCursor(InvalidCursorException ex) {
+                return new ApiError(
+                                "INVALID_CURSOR",
+                                ex.getMessage(),
+                                Map.of("cursor", ex.getCursor()));
+        }
+
+        @ExceptionHandler(TooManyIdsException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ApiError handleTooManyIds(TooManyIdsException ex) {
+                return new ApiError(
+                                "TOO_MANY_IDS",
+                                ex.getMessage(),
+                                Map.of("count", ex.getCount(),
+                                                "max", ex.getMax()));
+        }
+
+        @ExceptionHandler(InvalidIdempotencyKeyException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ApiError handleInvalidIdempotencyKey(InvalidIdempotencyKeyException ex) {
+                return new ApiError(
+                                "INVALID_IDEMPOTENCY_KEY",
+                                ex.getMessage(),
+                                Map.of("idempotencyKey", ex.getIdempotencyKey()));
+        }
+
+        @ExceptionHandler(IdempotencyKeyReusedException.class)
+        @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+        public ApiError handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+                return new ApiError(
+                                "IDEMPOTENCY_KEY_REUSED",
+                                ex.getMessage(),
+                                Map.of("idempotencyKey", ex.getIdempotencyKey()));
+        }
+
         @ExceptionHandler(InvalidStatusTransitionException.class)
         @ResponseStatus(HttpStatus.CONFLICT)
         public ApiError handleInvalidStatusTransition(InvalidStatusTransitionException ex) {
@@ -131,6 +180,17 @@ public class GlobalExceptionHandler {
                                                 "allowed", ex.getAllowed()));
         }
 
+        @ExceptionHandler(InvalidExportFormatException.class)
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        public ApiError handleInvalidExportFormat(InvalidExportFormatException ex) {
+                return new ApiError(
+                                "INVALID_EXPORT_FORMAT",
+                                ex.getMessage(),
+                                Map.of(
+                                                "format", ex.getFormat(),
+                                                "allowed", ex.getAllowed()));
+        }
+
         @ExceptionHandler(OutOfStockException.class)
         @ResponseStatus(HttpStatus.CONFLICT)
         public ApiError handleOutOfStock(OutOfStockException ex) {
@@ -143,6 +203,35 @@ public class GlobalExceptionHandler {
                                                 "available", ex.getAvailable()));
         }
 
+        @ExceptionHandler(PessimisticLockingFailureException.class)
+        @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+        public ApiError handleLockConflict(PessimisticLockingFailureException ex) {
+                return new ApiError(
+                                "LOCK_CONFLICT",
+                                "Request conflicted with concurrent updates, please retry",
+                                Map.of());
+        }
+
+        @ExceptionHandler(OrderIntakeFullException.class)
+        public ResponseEntity<ApiError> handleOrderIntakeFull(OrderIntakeFullException ex) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(new ApiError(
+                                                "ORDER_INTAKE_FULL",
+                                                ex.getMessage(),
+                                                Map.of("capacity", ex.getCapacity())));
+        }
+
+        @ExceptionHandler(PasswordHashingBusyException.class)
+        public ResponseEntity<ApiError> handlePasswordHashingBusy(PasswordHashingBusyException ex) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(new ApiError(
+                                                "AUTH_BUSY",
+                                                ex.getMessage(),
+                                                Map.of("capacity", ex.getCapacity())));
+        }
+
         @ExceptionHandler(NotFoundException.class)
         @ResponseStatus(HttpStatus.NOT_FOUND)
         public ApiError handleNotFound(NotFoundException ex) {
@@ -0,0 +1,14 @@
+package com.example.shopbackend.demo.common;
+
+public class InvalidCursorException extends RuntimeException {
+    private final String cursor;
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid page cursor: " + cursor);
+        this.cursor = cursor;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+}
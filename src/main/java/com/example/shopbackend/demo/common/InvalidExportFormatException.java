@@ -0,0 +1,22 @@
+package com.example.shopbackend.demo.common;
+
+import java.util.List;
+
+public class InvalidExportFormatException extends RuntimeException {
+    private final String format;
+    private final List<String> allowed;
+
+    public InvalidExportFormatException(String format, List<String> allowed) {
+        super("Invalid export format: " + format + ". Allowed values: " + allowed);
+        this.format = format;
+        this.allowed = allowed;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public List<String> getAllowed() {
+        return allowed;
+    }
+}
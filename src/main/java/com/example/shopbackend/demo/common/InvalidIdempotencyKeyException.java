@@ -0,0 +1,14 @@
+package com.example.shopbackend.demo.common;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+    private final String idempotencyKey;
+
+    public InvalidIdempotencyKeyException(String idempotencyKey) {
+        super("Idempotency-Key must be 1-255 characters");
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
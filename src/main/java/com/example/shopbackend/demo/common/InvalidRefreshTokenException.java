@@ -0,0 +1,8 @@
+package com.example.shopbackend.demo.common;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException() {
+        super("Refresh token is invalid, expired or already used");
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shopbackend.demo.common;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Component
+public class LockConflictRetry {
+
+    private static final Logger log = LoggerFactory.getLogger(LockConflictRetry.class);
+
+    private static final int MYSQL_DEADLOCK = 1213;
+    private static final String SQLSTATE_SERIALIZATION_FAILURE = "40001";
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final MeterRegistry meterRegistry;
+
+    public LockConflictRetry(
+            @Value("${app.lock-retry.max-attempts:4}") int maxAttempts,
+            @Value("${app.lock-retry.initial-backoff:20ms}") Duration initialBackoff,
+            @Value("${app.lock-retry.max-backoff:250ms}") Duration maxBackoff,
+            MeterRegistry meterRegistry) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Runs the action, which must open its own transaction, retrying deadlocks and lock timeouts
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            return action.get();
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                String reason = lockConflictReason(e);
+                if (reason == null)
+                    throw e;
+
+                if (attempt >= maxAttempts) {
+                    counter("lock.retry.exhausted", operation, reason).increment();
+                    throw e;
+                }
+
+                counter("lock.retry", operation, reason).increment();
+                log.debug("Retrying {} after {} (attempt {}/{})", operation, reason, attempt, maxAttempts);
+                backoff(attempt);
+            }
+        }
+    }
+
+    static String lockConflictReason(Throwable e) {
+        boolean lockFailure = false;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PessimisticLockingFailureException
+                    || t instanceof jakarta.persistence.PessimisticLockException
+                    || t instanceof jakarta.persistence.LockTimeoutException)
+                lockFailure = true;
+            if (t instanceof SQLException sql && (sql.getErrorCode() == MYSQL_DEADLOCK
+                    || SQLSTATE_SERIALIZATION_FAILURE.equals(sql.getSQLState())))
+                return "deadlock";
+        }
+        return lockFailure ? "lock_timeout" : null;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 16));
+        long sleep = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off from lock conflict", e);
+        }
+    }
+
+    private Counter counter(String name, String operation, String reason) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -1,8 +1,8 @@
 package com.example.shopbackend.demo.common;
 
 public class NotFoundException extends RuntimeException {
-    public NotFoundException(String resource, Long id) {
-        super(resource + " with id " + id + " not found");
+    public NotFoundException(String resource, Object id) {
+        super(resource + " with id " + id + " not found", null, false, false);
     }
 
 }
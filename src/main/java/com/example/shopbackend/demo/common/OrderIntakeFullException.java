@@ -0,0 +1,20 @@
+package com.example.shopbackend.demo.common;
+
+public class OrderIntakeFullException extends RuntimeException {
+    private final int capacity;
+    private final long retryAfterSeconds;
+
+    public OrderIntakeFullException(int capacity, long retryAfterSeconds) {
+        super("Order intake queue is full (capacity=" + capacity + ")", null, false, false);
+        this.capacity = capacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -5,8 +5,10 @@ public class OutOfStockException extends RuntimeException {
     private final int requested;
     private final int available;
 
+    // Expected failure after a sell-out, thrown often: no stack trace
     public OutOfStockException(Long productId, int requested, int available) {
-        super("Not enough for product " + productId + " (requested=" + requested + ", available=" + available + ")");
+        super("Not enough for product " + productId + " (requested=" + requested + ", available=" + available + ")",
+                null, false, false);
         this.productId = productId;
         this.requested = requested;
         this.available = available;
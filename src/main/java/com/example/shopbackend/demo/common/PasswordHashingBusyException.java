@@ -0,0 +1,20 @@
+package com.example.shopbackend.demo.common;
+
+public class PasswordHashingBusyException extends RuntimeException {
+    private final int capacity;
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(int capacity, long retryAfterSeconds) {
+        super("Too many logins in progress, please retry", null, false, false);
+        this.capacity = capacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.shopbackend.demo.common;
+
+public class TooManyIdsException extends RuntimeException {
+    private final int count;
+    private final int max;
+
+    public TooManyIdsException(int count, int max) {
+        super("Too many ids: " + count + " (max " + max + ")");
+        this.count = count;
+        this.max = max;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record BulkCancelOrdersRequest(
+        @NotEmpty @Size(max = 50_000) List<@NotNull Long> orderIds) {
+}
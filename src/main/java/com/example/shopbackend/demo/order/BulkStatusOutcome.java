@@ -0,0 +1,15 @@
+package com.example.shopbackend.demo.order;
+
+import io.micrometer.common.lang.Nullable;
+
+public record BulkStatusOutcome(
+        Long orderId,
+        Result result,
+        @Nullable Status status) {
+
+    public enum Result {
+        UPDATED,
+        NOT_FOUND,
+        INVALID_TRANSITION
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+public record BulkStatusResultDto(
+        Status status,
+        int updated,
+        int notFound,
+        int invalidTransition,
+        List<BulkStatusOutcome> outcomes) {
+
+    public static BulkStatusResultDto from(Status status, List<BulkStatusOutcome> outcomes) {
+        int[] counts = new int[BulkStatusOutcome.Result.values().length];
+        outcomes.forEach(outcome -> counts[outcome.result().ordinal()]++);
+
+        return new BulkStatusResultDto(
+                status,
+                counts[BulkStatusOutcome.Result.UPDATED.ordinal()],
+                counts[BulkStatusOutcome.Result.NOT_FOUND.ordinal()],
+                counts[BulkStatusOutcome.Result.INVALID_TRANSITION.ordinal()],
+                outcomes);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.shopbackend.demo.common.InvalidExportFormatException;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat parse(String raw) {
+        return Arrays.stream(values())
+                .filter(format -> format.name().equalsIgnoreCase(raw))
+                .findFirst()
+                .orElseThrow(() -> new InvalidExportFormatException(raw, allowedValues()));
+    }
+
+    public static List<String> allowedValues() {
+        return Arrays.stream(values())
+                .map(format -> format.name().toLowerCase())
+                .toList();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.shopbackend.demo.order;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,18 +19,26 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_status_created_at_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_orders_user_created_at_id", columnList = "user_id, created_at, id")
+})
 public class Order {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     private LocalDateTime createdAt;
     @Enumerated(EnumType.STRING)
@@ -37,6 +46,11 @@ public class Order {
     private Status status;
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
+    // minor units; line prices are frozen at creation, so these are kept instead of recomputed from items
+    @Column(name = "total_value", nullable = false)
+    private Long totalValue = 0L;
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount = 0;
 
     @JsonIgnore
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -48,17 +62,22 @@ public class Order {
 
     @PrePersist
     protected void onCreate() {
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
         this.status = Status.CREATED;
     }
 
     public void addItem(OrderItem item) {
         items.add(item);
         item.setOrder(this);
+        totalValue += lineTotal(item);
+        itemCount++;
     }
 
     public void removeItem(OrderItem item) {
-        items.remove(item);
+        if (items.remove(item)) {
+            totalValue -= lineTotal(item);
+            itemCount--;
+        }
         item.removeOrder();
     }
 
@@ -87,16 +106,15 @@ public class Order {
     }
 
     public BigDecimal getTotalValue() {
-        BigDecimal totalValue = BigDecimal.ZERO;
+        return BigDecimal.valueOf(totalValue);
+    }
 
-        for (OrderItem item : items) {
-            BigDecimal unitPrice = BigDecimal.valueOf(item.getUnitPrice());
-            BigDecimal quantity = BigDecimal.valueOf(item.getQuantity());
-            BigDecimal lineTotal = unitPrice.multiply(quantity);
-            totalValue = totalValue.add(lineTotal);
-        }
+    public int getItemCount() {
+        return itemCount;
+    }
 
-        return totalValue;
+    private static long lineTotal(OrderItem item) {
+        return (long) item.getUnitPrice() * item.getQuantity();
     }
 
     public User getUser() {
@@ -0,0 +1,256 @@
+package com.example.shopbackend.demo.order;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.product.ProductService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Status changes for many orders at once, one transaction per chunk of ids
+@Service
+public class OrderBulkStatusService {
+
+    public static final int MAX_REPORTED_PROBLEMS = 100;
+
+    private final OrderRepository repository;
+    private final ProductService productService;
+    private final OrderViewCache viewCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public OrderBulkStatusService(OrderRepository repository, ProductService productService,
+            OrderViewCache viewCache, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Value("${app.orders.bulk.chunk-size:500}") int chunkSize) {
+        this.repository = repository;
+        this.productService = productService;
+        this.viewCache = viewCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkStatusResultDto updateStatus(List<Long> orderIds, String rawStatus) {
+        return updateStatus(orderIds, Status.parseStatus(rawStatus));
+    }
+
+    public BulkStatusResultDto cancel(List<Long> orderIds) {
+        return updateStatus(orderIds, Status.CANCELLED);
+    }
+
+    private BulkStatusResultDto updateStatus(List<Long> orderIds, Status target) {
+        List<Long> ids = orderIds.stream().distinct().sorted().toList();
+
+        List<BulkStatusOutcome> outcomes = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += chunkSize)
+            outcomes.addAll(applyChunk(ids.subList(from, Math.min(from + chunkSize, ids.size())), target));
+
+        return BulkStatusResultDto.from(target, outcomes);
+    }
+
+    public PaymentImportResultDto importPaymentsCsv(InputStream body) {
+        return importPayments(body, new CsvOrderIds());
+    }
+
+    public PaymentImportResultDto importPaymentsNdjson(InputStream body) {
+        return importPayments(body, this::ndjsonOrderId);
+    }
+
+    // Reads the file line by line and marks orders PAID a chunk at a time, so memory stays bounded by the chunk
+    private PaymentImportResultDto importPayments(InputStream body, LineParser parser) {
+        PaymentImport result = new PaymentImport();
+        Map<Long, Long> chunk = new TreeMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null;) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+
+                Long orderId;
+                try {
+                    orderId = parser.orderId(line);
+                } catch (IllegalArgumentException e) {
+                    result.malformed(lineNumber, e.getMessage());
+                    continue;
+                }
+                if (orderId == null)
+                    continue;
+
+                chunk.putIfAbsent(orderId, lineNumber);
+                if (chunk.size() == chunkSize)
+                    result.apply(chunk);
+            }
+            result.apply(chunk);
+            return result.toDto(lineNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<BulkStatusOutcome> applyChunk(List<Long> ids, Status target) {
+        return transactionTemplate.execute(status -> {
+            Map<Long, Status> current = repository.findStatusesForUpdate(ids)
+                    .stream()
+                    .collect(Collectors.toMap(OrderStatusRow::id, OrderStatusRow::status));
+
+            List<Status> from = target.allowedPrevious();
+            repository.updateStatus(ids, from, target);
+
+            List<BulkStatusOutcome> outcomes = ids.stream()
+                    .map(id -> {
+                        Status was = current.get(id);
+                        if (was == null)
+                            return new BulkStatusOutcome(id, BulkStatusOutcome.Result.NOT_FOUND, null);
+                        if (from.contains(was))
+                            return new BulkStatusOutcome(id, BulkStatusOutcome.Result.UPDATED, target);
+                        return new BulkStatusOutcome(id, BulkStatusOutcome.Result.INVALID_TRANSITION, was);
+                    })
+                    .toList();
+
+            viewCache.invalidate(ids);
+            if (target == Status.CANCELLED)
+                restock(outcomes);
+            return outcomes;
+        });
+    }
+
+    // One grouped read and one stock update for the whole chunk, however many orders and lines it holds
+    private void restock(List<BulkStatusOutcome> outcomes) {
+        List<Long> cancelled = outcomes.stream()
+                .filter(outcome -> outcome.result() == BulkStatusOutcome.Result.UPDATED)
+                .map(BulkStatusOutcome::orderId)
+                .toList();
+        if (cancelled.isEmpty())
+            return;
+
+        productService.restock(repository.sumQuantitiesByProduct(cancelled)
+                .stream()
+                .collect(Collectors.toMap(ProductQuantity::productId, line -> Math.toIntExact(line.quantity()))));
+    }
+
+    private Long ndjsonOrderId(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+
+        JsonNode orderId = node.has("orderId") ? node.get("orderId") : node.path("order_id");
+        if (orderId.isIntegralNumber() && orderId.canConvertToLong())
+            return orderId.asLong();
+        if (orderId.isTextual())
+            return parseId(orderId.asText());
+        throw new IllegalArgumentException("missing or invalid orderId");
+    }
+
+    private static Long parseId(String raw) {
+        try {
+            return Long.valueOf(raw.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid order id '" + raw.trim() + "'");
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        // null for lines that carry no order, such as a CSV header
+        Long orderId(String line);
+    }
+
+    // Uses the order_id/orderId column when the first line is a header, otherwise the first column
+    private static final class CsvOrderIds implements LineParser {
+        private int column = -1;
+
+        @Override
+        public Long orderId(String line) {
+            String[] cells = line.split(",", -1);
+            if (column < 0) {
+                column = headerColumn(cells);
+                if (column >= 0)
+                    return null;
+                column = 0;
+            }
+            if (cells.length <= column)
+                throw new IllegalArgumentException("missing order id column");
+            return parseId(unquote(cells[column]));
+        }
+
+        private static int headerColumn(String[] cells) {
+            for (int i = 0; i < cells.length; i++) {
+                String name = unquote(cells[i]).replace("_", "");
+                if (name.equalsIgnoreCase("orderid"))
+                    return i;
+            }
+            return -1;
+        }
+
+        private static String unquote(String cell) {
+            String trimmed = cell.trim();
+            if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\""))
+                return trimmed.substring(1, trimmed.length() - 1);
+            return trimmed;
+        }
+    }
+
+    private final class PaymentImport {
+        private int updated;
+        private int notFound;
+        private int invalidTransition;
+        private int malformed;
+        private final List<PaymentImportProblem> problems = new ArrayList<>();
+
+        void apply(Map<Long, Long> chunk) {
+            if (chunk.isEmpty())
+                return;
+
+            for (BulkStatusOutcome outcome : applyChunk(List.copyOf(chunk.keySet()), Status.PAID)) {
+                switch (outcome.result()) {
+                    case UPDATED -> updated++;
+                    case NOT_FOUND -> {
+                        notFound++;
+                        problem(chunk.get(outcome.orderId()), outcome.orderId(), "order not found");
+                    }
+                    case INVALID_TRANSITION -> {
+                        invalidTransition++;
+                        problem(chunk.get(outcome.orderId()), outcome.orderId(),
+                                "cannot change status from " + outcome.status() + " to PAID");
+                    }
+                }
+            }
+            chunk.clear();
+        }
+
+        void malformed(long line, String reason) {
+            malformed++;
+            problem(line, null, reason);
+        }
+
+        private void problem(long line, Long orderId, String reason) {
+            if (problems.size() < MAX_REPORTED_PROBLEMS)
+                problems.add(new PaymentImportProblem(line, orderId, reason));
+        }
+
+        PaymentImportResultDto toDto(long lines) {
+            return new PaymentImportResultDto(lines, updated, notFound, invalidTransition, malformed, problems);
+        }
+    }
+}
@@ -1,17 +1,29 @@
 package com.example.shopbackend.demo.order;
 
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.shopbackend.demo.common.AcceptEncoding;
 import com.example.shopbackend.demo.orderitem.OrderItemDto;
 
 import jakarta.validation.Valid;
@@ -23,73 +35,180 @@ import org.springframework.web.bind.annotation.PathVariable;
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
     private final OrderService orderService;
+    private final OrderIntake orderIntake;
+    private final OrderBulkStatusService orderBulkStatusService;
+    private final OrderExportService orderExportService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIntake orderIntake,
+            OrderBulkStatusService orderBulkStatusService, OrderExportService orderExportService) {
         this.orderService = orderService;
+        this.orderIntake = orderIntake;
+        this.orderBulkStatusService = orderBulkStatusService;
+        this.orderExportService = orderExportService;
+    }
+
+    @GetMapping
+    public OrderPageDto search(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int size) {
+        OrderSearchCriteria criteria = new OrderSearchCriteria(
+                status == null ? null : Status.parseStatus(status),
+                from,
+                to,
+                userId);
+
+        return OrderPageDto.from(orderService.search(criteria, cursor, size));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        OrderSearchCriteria criteria = new OrderSearchCriteria(
+                status == null ? null : Status.parseStatus(status),
+                from,
+                to,
+                userId);
+        // fail before the 200 is committed; once streaming starts errors can only cut the body short
+        orderExportService.validate(criteria);
+
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("orders." + exportFormat.extension())
+                        .build()
+                        .toString())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip)
+            return response.body(out -> orderExportService.export(criteria, exportFormat, out));
+
+        return response
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(out -> {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                    orderExportService.export(criteria, exportFormat, compressed);
+                    compressed.finish();
+                });
     }
 
-    @GetMapping(params = { "!status", "!from", "!to" })
-    public List<OrderDto> getAll() {
-        return orderService.getAll()
-                .stream()
-                .map(OrderDto::from)
-                .toList();
+    @GetMapping("/summaries")
+    public List<OrderSummaryDto> getSummaries(@RequestParam List<Long> ids) {
+        return orderService.getSummaries(ids);
+    }
+
+    @GetMapping("/summaries/search")
+    public OrderSummaryPageDto searchSummaries(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int size) {
+        OrderSearchCriteria criteria = new OrderSearchCriteria(
+                status == null ? null : Status.parseStatus(status),
+                from,
+                to,
+                userId);
+
+        return orderService.searchSummaries(criteria, cursor, size);
     }
 
     @GetMapping("/mine")
-    public List<OrderDto> getMine() {
-        return orderService.getMine()
-                .stream()
-                .map(OrderDto::from)
-                .toList();
+    public OrderPageDto getMine(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int size) {
+        return OrderPageDto.from(orderService.getMine(cursor, size));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<OrderDto> getById(@PathVariable Long id) {
-        Order order = orderService.getById(id);
-        return ResponseEntity.ok(OrderDto.from(order));
+        OrderView view = orderService.getView(id);
+        return cacheable(view, view.order());
     }
 
     @GetMapping("/{id}/items")
-    public List<OrderItemDto> getOrderItems(@PathVariable Long id) {
-        Order order = orderService.getById(id);
-        return order.getItems()
-                .stream()
-                .map(OrderItemDto::from)
-                .toList();
+    public ResponseEntity<List<OrderItemDto>> getOrderItems(@PathVariable Long id) {
+        OrderView view = orderService.getView(id);
+        return cacheable(view, view.order().items());
     }
 
-    @GetMapping(params = "status")
-    public List<OrderDto> getByStatus(@RequestParam(required = false) String status) {
-        return orderService.getByStatus(status)
-                .stream()
-                .map(OrderDto::from)
-                .toList();
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<OrderSummaryDto> getOrderSummary(@PathVariable Long id) {
+        OrderView view = orderService.getView(id);
+        return cacheable(view, view.summary());
     }
 
-    @GetMapping(params = { "from", "to" })
-    public List<OrderDto> getCreatedBetween(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
-        return orderService.getCreatedBetween(from, to)
-                .stream()
-                .map(OrderDto::from)
-                .toList();
+    // Spring answers 304 itself when If-None-Match matches the ETag
+    private static <T> ResponseEntity<T> cacheable(OrderView view, T body) {
+        CacheControl cacheControl = view.immutable()
+                ? CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+        return ResponseEntity.ok()
+                .eTag(view.etag())
+                .cacheControl(cacheControl)
+                .body(body);
     }
 
-    @GetMapping("/{id}/summary")
-    public OrderSummaryDto getOrderSummary(@PathVariable Long id) {
-        Order order = orderService.getById(id);
-        return OrderSummaryDto.from(order);
+    @PostMapping
+    public ResponseEntity<?> create(@Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (orderIntake.isEnabled()) {
+            OrderTicketDto ticket = orderIntake.submit(request, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/orders/tickets/" + ticket.id()))
+                    .body(ticket);
+        }
+
+        OrderDto savedOrder = idempotencyKey == null
+                ? OrderDto.from(orderService.create(request))
+                : orderService.create(request, idempotencyKey);
+
+        URI location = URI.create("/orders/" + savedOrder.id());
+        return ResponseEntity.created(location).body(savedOrder);
     }
 
-    @PostMapping
-    public ResponseEntity<OrderDto> create(@Valid @RequestBody CreateOrderRequest request) {
-        Order savedOrder = orderService.create(request);
+    @PatchMapping("/status")
+    public BulkStatusResultDto updateStatuses(@Valid @RequestBody BulkUpdateOrderStatusRequest request) {
+        return orderBulkStatusService.updateStatus(request.orderIds(), request.status());
+    }
+
+    @PostMapping("/cancel")
+    public BulkStatusResultDto cancelAll(@Valid @RequestBody BulkCancelOrdersRequest request) {
+        return orderBulkStatusService.cancel(request.orderIds());
+    }
+
+    @PostMapping(path = "/payments/import", consumes = "text/csv")
+    public PaymentImportResultDto importPaymentsCsv(InputStream body) {
+        return orderBulkStatusService.importPaymentsCsv(body);
+    }
+
+    @PostMapping(path = "/payments/import", consumes = "application/x-ndjson")
+    public PaymentImportResultDto importPaymentsNdjson(InputStream body) {
+        return orderBulkStatusService.importPaymentsNdjson(body);
+    }
+
+    @GetMapping("/tickets/{id}")
+    public ResponseEntity<OrderTicketDto> getTicket(@PathVariable UUID id) {
+        OrderTicketDto ticket = orderIntake.getTicket(id);
 
-        URI location = URI.create("/orders/" + savedOrder.getId());
-        return ResponseEntity.created(location).body(OrderDto.from(savedOrder));
+        if (ticket.status() == OrderTicketStatus.CREATED)
+            return ResponseEntity.status(HttpStatus.SEE_OTHER)
+                    .location(URI.create("/orders/" + ticket.orderId()))
+                    .body(ticket);
+        return ResponseEntity.ok(ticket);
     }
 
     @PostMapping("/{id}/cancel")
@@ -0,0 +1,16 @@
+package com.example.shopbackend.demo.order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.shopbackend.demo.orderitem.OrderItemDto;
+
+public record OrderExportDto(
+        Long id,
+        LocalDateTime createdAt,
+        Status status,
+        Long userId,
+        BigDecimal totalValue,
+        List<OrderItemDto> items) {
+}
@@ -0,0 +1,17 @@
+package com.example.shopbackend.demo.order;
+
+import java.time.LocalDateTime;
+
+// One order line joined with its order header, as scrolled by OrderExportService
+public record OrderExportRow(
+        Long orderId,
+        LocalDateTime createdAt,
+        Status status,
+        Long userId,
+        Long totalValue,
+        Long productId,
+        String productName,
+        String imageKey,
+        int quantity,
+        int unitPrice) {
+}
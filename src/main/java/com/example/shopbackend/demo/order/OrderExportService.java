@@ -0,0 +1,168 @@
+package com.example.shopbackend.demo.order;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.common.InvalidDateRangeException;
+import com.example.shopbackend.demo.orderitem.OrderItemDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.persistence.EntityManager;
+
+// Streams orders with their lines straight from a forward-only cursor, so memory holds one order at a time
+@Service
+public class OrderExportService {
+
+    static final String CSV_HEADER = "order_id,created_at,status,user_id,order_total,product_id,product_name,quantity,unit_price";
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter ndjsonWriter;
+    private final int fetchSize;
+
+    public OrderExportService(EntityManager em, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${app.orders.export.fetch-size:500}") int fetchSize) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        // one flush per order would turn every line into its own chunk on the wire
+        this.ndjsonWriter = objectMapper.writerFor(OrderExportDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    public void validate(OrderSearchCriteria criteria) {
+        if (criteria.from() != null && criteria.to() != null && criteria.from().isAfter(criteria.to()))
+            throw new InvalidDateRangeException(criteria.from(), criteria.to());
+    }
+
+    public void export(OrderSearchCriteria criteria, ExportFormat format, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (ScrollableResults<OrderExportRow> rows = query(criteria).scroll(ScrollMode.FORWARD_ONLY)) {
+                switch (format) {
+                    case NDJSON -> writeNdjson(rows, writer);
+                    case CSV -> writeCsv(rows, writer);
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Only present filters become predicates, as in OrderSpecifications; rows arrive grouped by order
+    private SelectionQuery<OrderExportRow> query(OrderSearchCriteria criteria) {
+        StringBuilder jpql = new StringBuilder("""
+                select new com.example.shopbackend.demo.order.OrderExportRow(
+                    o.id, o.createdAt, o.status, o.user.id, o.totalValue,
+                    i.product.id, i.productName, i.imageKey, i.quantity, i.unitPrice)
+                from OrderItem i join i.order o
+                """);
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> parameters = new TreeMap<>();
+
+        if (criteria.status() != null) {
+            predicates.add("o.status = :status");
+            parameters.put("status", criteria.status());
+        }
+        if (criteria.userId() != null) {
+            predicates.add("o.user.id = :userId");
+            parameters.put("userId", criteria.userId());
+        }
+        if (criteria.from() != null) {
+            predicates.add("o.createdAt >= :from");
+            parameters.put("from", criteria.from());
+        }
+        if (criteria.to() != null) {
+            predicates.add("o.createdAt <= :to");
+            parameters.put("to", criteria.to());
+        }
+        if (!predicates.isEmpty())
+            jpql.append("where ").append(String.join(" and ", predicates));
+        jpql.append(" order by o.createdAt, o.id, i.id");
+
+        SelectionQuery<OrderExportRow> query = em.unwrap(Session.class)
+                .createSelectionQuery(jpql.toString(), OrderExportRow.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private void writeNdjson(ScrollableResults<OrderExportRow> rows, Writer writer) throws IOException {
+        OrderExportRow first = null;
+        List<OrderItemDto> items = new ArrayList<>();
+
+        while (rows.next()) {
+            OrderExportRow row = rows.get();
+            if (first != null && !first.orderId().equals(row.orderId())) {
+                writeOrder(first, items, writer);
+                items = new ArrayList<>();
+            }
+            if (items.isEmpty())
+                first = row;
+            items.add(OrderItemDto.of(row.productId(), row.quantity(), row.unitPrice(), row.imageKey(),
+                    row.productName()));
+        }
+        if (first != null)
+            writeOrder(first, items, writer);
+    }
+
+    private void writeOrder(OrderExportRow order, List<OrderItemDto> items, Writer writer) throws IOException {
+        ndjsonWriter.writeValue(writer, new OrderExportDto(
+                order.orderId(),
+                order.createdAt(),
+                order.status(),
+                order.userId(),
+                BigDecimal.valueOf(order.totalValue()),
+                items));
+        writer.write('\n');
+    }
+
+    private static void writeCsv(ScrollableResults<OrderExportRow> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        while (rows.next()) {
+            OrderExportRow row = rows.get();
+            writer.write(row.orderId() + "," + row.createdAt() + "," + row.status() + "," + row.userId() + ","
+                    + row.totalValue() + "," + row.productId() + "," + csvCell(row.productName()) + ","
+                    + row.quantity() + "," + row.unitPrice());
+            writer.write('\n');
+        }
+    }
+
+    private static String csvCell(String value) {
+        if (value == null)
+            return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
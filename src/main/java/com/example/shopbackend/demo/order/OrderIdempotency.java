@@ -0,0 +1,130 @@
+package com.example.shopbackend.demo.order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.shopbackend.demo.common.IdempotencyKeyReusedException;
+
+// Replays recent order creations per (user, Idempotency-Key) and makes concurrent duplicates wait for the first
+@Component
+class OrderIdempotency implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdempotency.class);
+
+    private final OrderIdempotencyKeyRepository repository;
+    private final Duration ttl;
+    private final Map<Key, Completed> completed;
+    private final Map<Key, CompletableFuture<Completed>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService purger;
+
+    OrderIdempotency(OrderIdempotencyKeyRepository repository,
+            @Value("${app.orders.idempotency.ttl:24h}") Duration ttl,
+            @Value("${app.orders.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${app.orders.idempotency.purge-interval:10m}") Duration purgeInterval) {
+        this.repository = repository;
+        this.ttl = ttl;
+        // insertion order is expiry order, so the eldest entry is both the oldest and the next to expire
+        this.completed = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Completed> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.purger = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("order-idempotency-purger").daemon().factory());
+        purger.scheduleWithFixedDelay(this::purge, purgeInterval.toMillis(), purgeInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    OrderDto execute(long userId, String idempotencyKey, String fingerprint, Supplier<OrderDto> create) {
+        Key key = new Key(userId, idempotencyKey);
+        Completed cached = cached(key);
+        if (cached != null)
+            return cached.replay(idempotencyKey, fingerprint);
+
+        CompletableFuture<Completed> mine = new CompletableFuture<>();
+        CompletableFuture<Completed> running = inFlight.putIfAbsent(key, mine);
+        if (running != null)
+            return await(running).replay(idempotencyKey, fingerprint);
+
+        try {
+            Completed result = new Completed(fingerprint, create.get(), System.nanoTime() + ttl.toNanos());
+            synchronized (completed) {
+                completed.put(key, result);
+            }
+            mine.complete(result);
+            return result.order();
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        purger.shutdownNow();
+    }
+
+    private Completed cached(Key key) {
+        synchronized (completed) {
+            Completed cached = completed.get(key);
+            if (cached != null && System.nanoTime() - cached.expiresAt() > 0) {
+                completed.remove(key);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void purge() {
+        long now = System.nanoTime();
+        synchronized (completed) {
+            Iterator<Completed> it = completed.values().iterator();
+            while (it.hasNext() && now - it.next().expiresAt() > 0)
+                it.remove();
+        }
+
+        try {
+            repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge expired idempotency keys", e);
+        }
+    }
+
+    private static Completed await(CompletableFuture<Completed> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private record Key(long userId, String idempotencyKey) {
+    }
+
+    private record Completed(String fingerprint, OrderDto order, long expiresAt) {
+        OrderDto replay(String idempotencyKey, String requestFingerprint) {
+            if (!fingerprint.equals(requestFingerprint))
+                throw new IdempotencyKeyReusedException(idempotencyKey);
+            return order;
+        }
+    }
+}
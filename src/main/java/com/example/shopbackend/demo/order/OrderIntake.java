@@ -0,0 +1,211 @@
+package com.example.shopbackend.demo.order;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import com.example.shopbackend.demo.common.IdempotencyKeyReusedException;
+import com.example.shopbackend.demo.common.NotFoundException;
+import com.example.shopbackend.demo.common.OrderIntakeFullException;
+import com.example.shopbackend.demo.common.OutOfStockException;
+
+import io.micrometer.common.lang.Nullable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Opt-in async POST /orders: requests wait in a bounded queue and virtual-thread workers create the orders
+@Component
+public class OrderIntake implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIntake.class);
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long ticketTtlNanos;
+    private final long retryAfterSeconds;
+    private final BlockingQueue<Ticket> queue;
+    private final Map<UUID, Ticket> tickets = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    @Nullable
+    private final ScheduledExecutorService sweeper;
+    private final Timer waitTime;
+    private final Counter rejected;
+    private final Counter created;
+    private final Counter failed;
+    private volatile boolean running = true;
+
+    public OrderIntake(OrderService orderService, MeterRegistry meterRegistry,
+            @Value("${app.orders.intake.enabled:false}") boolean enabled,
+            @Value("${app.orders.intake.capacity:1000}") int capacity,
+            @Value("${app.orders.intake.workers:8}") int workers,
+            @Value("${app.orders.intake.batch-size:16}") int batchSize,
+            @Value("${app.orders.intake.ticket-ttl:10m}") Duration ticketTtl,
+            @Value("${app.orders.intake.retry-after:1s}") Duration retryAfter) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.ticketTtlNanos = ticketTtl.toNanos();
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("orders.intake.queue.depth", queue, BlockingQueue::size)
+                .description("Orders waiting for an intake worker")
+                .register(meterRegistry);
+        this.waitTime = Timer.builder("orders.intake.wait")
+                .description("Time from 202 Accepted until a worker picks the order up")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.intake.rejected")
+                .description("Orders turned away because the intake queue was full")
+                .register(meterRegistry);
+        this.created = Counter.builder("orders.intake.processed").tag("outcome", "created").register(meterRegistry);
+        this.failed = Counter.builder("orders.intake.processed").tag("outcome", "failed").register(meterRegistry);
+
+        if (!enabled) {
+            this.sweeper = null;
+            return;
+        }
+
+        for (int i = 0; i < workers; i++)
+            this.workers.add(Thread.ofVirtual().name("order-intake-", i).start(this::work));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("order-intake-sweeper").daemon().factory());
+        long sweepMillis = Math.max(1, ticketTtl.toMillis() / 2);
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public OrderTicketDto submit(CreateOrderRequest request, @Nullable String idempotencyKey) {
+        Ticket ticket = new Ticket(UUID.randomUUID(), SecurityContextHolder.getContext().getAuthentication(),
+                request, idempotencyKey, System.nanoTime());
+
+        tickets.put(ticket.id, ticket);
+        if (!running || !queue.offer(ticket)) {
+            tickets.remove(ticket.id);
+            rejected.increment();
+            throw new OrderIntakeFullException(capacity, retryAfterSeconds);
+        }
+        return ticket.view;
+    }
+
+    public OrderTicketDto getTicket(UUID id) {
+        Ticket ticket = tickets.get(id);
+        String principal = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (ticket == null || !ticket.authentication.getName().equals(principal))
+            throw new NotFoundException("Order ticket", id);
+        return ticket.view;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (sweeper != null)
+            sweeper.shutdownNow();
+        for (Thread worker : workers)
+            worker.join(Duration.ofSeconds(10));
+    }
+
+    private void work() {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            queue.drainTo(batch, batchSize - 1);
+            batch.forEach(this::process);
+            batch.clear();
+        }
+    }
+
+    private void process(Ticket ticket) {
+        waitTime.record(System.nanoTime() - ticket.enqueuedAt, TimeUnit.NANOSECONDS);
+        SecurityContextHolder.getContext().setAuthentication(ticket.authentication);
+        try {
+            Long orderId = ticket.idempotencyKey == null
+                    ? orderService.create(ticket.request).getId()
+                    : orderService.create(ticket.request, ticket.idempotencyKey).id();
+            ticket.finish(new OrderTicketDto(ticket.id, OrderTicketStatus.CREATED, orderId, null, null));
+            created.increment();
+        } catch (RuntimeException e) {
+            String errorCode = errorCode(e);
+            if (errorCode.equals("ORDER_FAILED"))
+                log.error("Queued order failed. ticket={}", ticket.id, e);
+            ticket.finish(new OrderTicketDto(ticket.id, OrderTicketStatus.FAILED, null, errorCode, e.getMessage()));
+            failed.increment();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        tickets.values().removeIf(ticket -> ticket.finishedAt != 0 && now - ticket.finishedAt > ticketTtlNanos);
+    }
+
+    private static String errorCode(RuntimeException e) {
+        return switch (e) {
+            case OutOfStockException ignored -> "OUT_OF_STOCK";
+            case NotFoundException ignored -> "NOT_FOUND";
+            case IdempotencyKeyReusedException ignored -> "IDEMPOTENCY_KEY_REUSED";
+            case PessimisticLockingFailureException ignored -> "LOCK_CONFLICT";
+            default -> "ORDER_FAILED";
+        };
+    }
+
+    private static final class Ticket {
+        private final UUID id;
+        private final Authentication authentication;
+        private final CreateOrderRequest request;
+        private final String idempotencyKey;
+        private final long enqueuedAt;
+        private volatile OrderTicketDto view;
+        private volatile long finishedAt;
+
+        Ticket(UUID id, Authentication authentication, CreateOrderRequest request, String idempotencyKey,
+                long enqueuedAt) {
+            this.id = id;
+            this.authentication = authentication;
+            this.request = request;
+            this.idempotencyKey = idempotencyKey;
+            this.enqueuedAt = enqueuedAt;
+            this.view = new OrderTicketDto(id, OrderTicketStatus.QUEUED, null, null, null);
+        }
+
+        void finish(OrderTicketDto result) {
+            view = result;
+            finishedAt = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+public record OrderPage(
+        List<Order> orders,
+        OrderCursor next) {
+}
@@ -0,0 +1,14 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+public record OrderPageDto(
+        List<OrderDto> items,
+        String nextCursor) {
+
+    public static OrderPageDto from(OrderPage page) {
+        return new OrderPageDto(
+                page.orders().stream().map(OrderDto::from).toList(),
+                page.next() == null ? null : page.next().encode());
+    }
+}
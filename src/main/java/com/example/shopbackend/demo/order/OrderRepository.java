@@ -1,14 +1,43 @@
 package com.example.shopbackend.demo.order;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
-import java.time.LocalDateTime;
-import java.util.List;
+import jakarta.persistence.LockModeType;
+
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order>,
+        OrderSummaryQueries {
+
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+
+    @EntityGraph(attributePaths = "items")
+    List<Order> findWithItemsByIdIn(Collection<Long> ids);
+
+    @Query("select new com.example.shopbackend.demo.order.OrderSummaryDto(o.id, o.totalValue, o.itemCount, o.status, o.createdAt) from Order o where o.id in :ids")
+    List<OrderSummaryDto> findSummariesByIdIn(Collection<Long> ids);
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByStatus(Status status);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.example.shopbackend.demo.order.OrderStatusRow(o.id, o.status) from Order o where o.id in :ids")
+    List<OrderStatusRow> findStatusesForUpdate(Collection<Long> ids);
 
-    List<Order> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Order o set o.status = :target where o.id in :ids and o.status in :from")
+    int updateStatus(Collection<Long> ids, Collection<Status> from, Status target);
 
-    List<Order> findByUserId(Long userId);
+    @Query("""
+            select new com.example.shopbackend.demo.order.ProductQuantity(i.product.id, sum(i.quantity))
+            from OrderItem i
+            where i.order.id in :orderIds
+            group by i.product.id
+            """)
+    List<ProductQuantity> sumQuantitiesByProduct(Collection<Long> orderIds);
 }
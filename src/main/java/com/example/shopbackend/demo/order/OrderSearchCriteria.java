@@ -0,0 +1,14 @@
+package com.example.shopbackend.demo.order;
+
+import java.time.LocalDateTime;
+
+public record OrderSearchCriteria(
+        Status status,
+        LocalDateTime from,
+        LocalDateTime to,
+        Long userId) {
+
+    public static OrderSearchCriteria forUser(Long userId) {
+        return new OrderSearchCriteria(null, null, null, userId);
+    }
+}
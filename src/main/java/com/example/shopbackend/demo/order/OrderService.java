@@ -1,21 +1,34 @@
 package com.example.shopbackend.demo.order;
 
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpStatus;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.shopbackend.demo.common.IdempotencyKeyReusedException;
 import com.example.shopbackend.demo.common.InvalidDateRangeException;
+import com.example.shopbackend.demo.common.InvalidIdempotencyKeyException;
+import com.example.shopbackend.demo.common.LockConflictRetry;
 import com.example.shopbackend.demo.common.NotFoundException;
+import com.example.shopbackend.demo.common.TooManyIdsException;
 import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
 import com.example.shopbackend.demo.orderitem.OrderItem;
 import com.example.shopbackend.demo.product.Product;
 import com.example.shopbackend.demo.product.ProductService;
-import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
 import com.example.shopbackend.demo.user.UserRepository;
 
 import jakarta.transaction.Transactional;
@@ -23,44 +36,115 @@ import jakarta.transaction.Transactional;
 @Service
 public class OrderService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_SUMMARY_IDS = 500;
+
     private final ProductService productService;
     private final OrderRepository repository;
     private final UserRepository userRepository;
+    private final OrderIdempotencyKeyRepository idempotencyKeyRepository;
+    private final OrderIdempotency orderIdempotency;
+    private final OrderViewCache viewCache;
+    private final LockConflictRetry lockConflictRetry;
+    private final TransactionTemplate transactionTemplate;
 
-    public OrderService(ProductService productService, OrderRepository repository, UserRepository userRepository) {
+    public OrderService(ProductService productService, OrderRepository repository, UserRepository userRepository,
+            OrderIdempotencyKeyRepository idempotencyKeyRepository, OrderIdempotency orderIdempotency,
+            OrderViewCache viewCache, LockConflictRetry lockConflictRetry, PlatformTransactionManager transactionManager) {
         this.productService = productService;
         this.repository = repository;
         this.userRepository = userRepository;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.orderIdempotency = orderIdempotency;
+        this.viewCache = viewCache;
+        this.lockConflictRetry = lockConflictRetry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public OrderPage search(OrderSearchCriteria criteria, String cursor, int size) {
+        validate(criteria);
+        int limit = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        OrderCursor after = decodeCursor(cursor);
+
+        List<Order> rows = repository.findBy(
+                OrderSpecifications.matching(criteria, after),
+                query -> query.sortBy(OrderSpecifications.NEWEST_FIRST).limit(limit + 1).all());
+
+        if (rows.size() <= limit)
+            return new OrderPage(withItems(rows), null);
+
+        List<Order> page = rows.subList(0, limit);
+        return new OrderPage(withItems(page), OrderCursor.of(page.get(limit - 1)));
     }
 
-    public List<Order> getAll() {
-        return repository.findAll(Sort.by(Sort.Direction.DESC, "createdAt"));
+    // Summaries come from one projection over the orders row, items are never read
+    public List<OrderSummaryDto> getSummaries(List<Long> ids) {
+        List<Long> distinct = ids.stream().distinct().toList();
+        if (distinct.size() > MAX_SUMMARY_IDS)
+            throw new TooManyIdsException(distinct.size(), MAX_SUMMARY_IDS);
+        if (distinct.isEmpty())
+            return List.of();
+
+        Map<Long, OrderSummaryDto> found = repository.findSummariesByIdIn(distinct)
+                .stream()
+                .collect(Collectors.toMap(OrderSummaryDto::orderId, Function.identity()));
+
+        return distinct.stream().map(found::get).filter(Objects::nonNull).toList();
     }
 
-    public List<Order> getMine() {
-        String email = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        long userId = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED))
-                .getId();
+    public OrderSummaryPageDto searchSummaries(OrderSearchCriteria criteria, String cursor, int size) {
+        validate(criteria);
+        int limit = Math.clamp(size, 1, MAX_PAGE_SIZE);
+
+        List<OrderSummaryDto> rows = repository.findSummaries(
+                OrderSpecifications.matching(criteria, decodeCursor(cursor)), limit + 1);
+
+        if (rows.size() <= limit)
+            return new OrderSummaryPageDto(rows, null);
+
+        OrderSummaryDto last = rows.get(limit - 1);
+        return new OrderSummaryPageDto(rows.subList(0, limit),
+                new OrderCursor(last.created(), last.orderId()).encode());
+    }
 
-        return repository.findByUserId(userId);
+    private static void validate(OrderSearchCriteria criteria) {
+        if (criteria.from() != null && criteria.to() != null && criteria.from().isAfter(criteria.to()))
+            throw new InvalidDateRangeException(criteria.from(), criteria.to());
+    }
+
+    private static OrderCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+    }
+
+    // Loads items for a whole page in one statement, keeping the page order
+    private List<Order> withItems(List<Order> orders) {
+        if (orders.isEmpty())
+            return orders;
+
+        Map<Long, Order> loaded = repository.findWithItemsByIdIn(orders.stream().map(Order::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        return orders.stream().map(order -> loaded.get(order.getId())).toList();
+    }
+
+    public OrderPage getMine(String cursor, int size) {
+        return search(OrderSearchCriteria.forUser(AuthenticatedUser.current().id()), cursor, size);
     }
 
     public Order getById(Long id) {
-        return repository.findById(id)
+        return repository.findWithItemsById(id)
                 .orElseThrow(() -> new NotFoundException("Order", id));
     }
 
-    public List<Order> getByStatus(String rawStatus) {
-        Status status = Status.parseStatus(rawStatus);
-        return repository.findByStatus(status);
+    public OrderView getView(Long id) {
+        return viewCache.get(id, this::getById);
     }
 
-    public List<Order> getCreatedBetween(LocalDateTime from, LocalDateTime to) {
-        if (from.isAfter(to))
-            throw new InvalidDateRangeException(from, to);
-
-        return repository.findByCreatedAtBetween(from, to);
+    public Order getWithoutItems(Long id) {
+        return repository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Order", id));
     }
 
     @Transactional
@@ -70,12 +154,10 @@ public class OrderService {
         Status status = Status.parseStatus(request.status());
 
         order.changeStatus(status);
+        viewCache.invalidate(id);
 
         if (status == Status.CANCELLED)
-            for (OrderItem orderItem : order.getItems()) {
-                Product product = orderItem.getProduct();
-                product.increaseStock(orderItem.getQuantity());
-            }
+            restock(order);
 
         return order;
     }
@@ -85,32 +167,96 @@ public class OrderService {
         Order order = getById(id);
 
         order.changeStatus(Status.CANCELLED);
+        viewCache.invalidate(id);
 
-        for (OrderItem orderItem : order.getItems()) {
-            Product product = orderItem.getProduct();
-            product.increaseStock(orderItem.getQuantity());
-        }
+        restock(order);
         return order;
     }
 
-    @Transactional
+    private void restock(Order order) {
+        productService.restock(order.getItems()
+                .stream()
+                .collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity, Integer::sum)));
+    }
+
     public Order create(CreateOrderRequest request) {
-        Order order = new Order();
+        return lockConflictRetry.execute("order.create",
+                () -> transactionTemplate.execute(status -> createInTransaction(request)));
+    }
+
+    // Same key and user within the retention window: the original order is returned instead of creating another
+    public OrderDto create(CreateOrderRequest request, String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255)
+            throw new InvalidIdempotencyKeyException(idempotencyKey);
 
-        String email = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        long userId = AuthenticatedUser.current().id();
+        String fingerprint = fingerprint(request);
 
-        order.setUser(user);
+        return orderIdempotency.execute(userId, idempotencyKey, fingerprint,
+                () -> createOnce(request, userId, idempotencyKey, fingerprint));
+    }
 
-        for (CreateOrderItemRequest requestItem : request.items()) {
-            Product product = productService.getById(requestItem.productId());
+    private OrderDto createOnce(CreateOrderRequest request, long userId, String idempotencyKey,
+            String fingerprint) {
+        try {
+            return lockConflictRetry.execute("order.create", () -> transactionTemplate.execute(status -> {
+                Optional<OrderIdempotencyKey> existing = idempotencyKeyRepository
+                        .findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+                if (existing.isPresent())
+                    return replay(existing.get(), fingerprint);
 
-            productService.reserveStockOrThrow(product.getId(), requestItem.quantity());
-            OrderItem orderItem = new OrderItem(
-                    product, requestItem.quantity(), product.getPrice());
-            order.addItem(orderItem);
+                Order order = createInTransaction(request);
+                idempotencyKeyRepository.saveAndFlush(new OrderIdempotencyKey(userId,
+                        idempotencyKey, fingerprint, order.getId()));
+                return OrderDto.from(order);
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // the same key committed first on another node; this attempt rolled back its reservation
+            return transactionTemplate.execute(status -> replay(idempotencyKeyRepository
+                    .findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> e), fingerprint));
         }
+    }
+
+    private OrderDto replay(OrderIdempotencyKey existing, String fingerprint) {
+        if (!existing.getRequestFingerprint().equals(fingerprint))
+            throw new IdempotencyKeyReusedException(existing.getIdempotencyKey());
+        return OrderDto.from(getById(existing.getOrderId()));
+    }
+
+    private static Map<Long, Integer> mergeLines(CreateOrderRequest request) {
+        return request.items()
+                .stream()
+                .collect(Collectors.toMap(CreateOrderItemRequest::productId, CreateOrderItemRequest::quantity,
+                        Integer::sum, LinkedHashMap::new));
+    }
+
+    static String fingerprint(CreateOrderRequest request) {
+        StringBuilder lines = new StringBuilder();
+        new TreeMap<>(mergeLines(request)).forEach((id, quantity) -> lines.append(id).append(':').append(quantity).append(';'));
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(lines.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Order createInTransaction(CreateOrderRequest request) {
+        Order order = new Order();
+
+        Map<Long, Integer> quantities = mergeLines(request);
+
+        // reserve first: the bulk stock update clears the persistence context
+        Map<Long, Product> products = productService.reserveStockOrThrow(quantities);
+
+        // the id comes from the verified token, so a reference is enough for the foreign key
+        order.setUser(userRepository.getReferenceById(AuthenticatedUser.current().id()));
+
+        quantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            order.addItem(new OrderItem(product, quantity, product.getPrice()));
+        });
 
         return repository.save(order);
     }
@@ -0,0 +1,59 @@
+package com.example.shopbackend.demo.order;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+// Only present filters become predicates so each combination stays index-friendly
+final class OrderSpecifications {
+
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private OrderSpecifications() {
+    }
+
+    static Specification<Order> matching(OrderSearchCriteria criteria, OrderCursor cursor) {
+        List<Specification<Order>> specs = new ArrayList<>();
+
+        if (criteria.status() != null)
+            specs.add(hasStatus(criteria.status()));
+        if (criteria.userId() != null)
+            specs.add(belongsTo(criteria.userId()));
+        if (criteria.from() != null)
+            specs.add(createdFrom(criteria.from()));
+        if (criteria.to() != null)
+            specs.add(createdTo(criteria.to()));
+        if (cursor != null)
+            specs.add(after(cursor));
+
+        return Specification.allOf(specs);
+    }
+
+    static Specification<Order> hasStatus(Status status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    static Specification<Order> belongsTo(Long userId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    static Specification<Order> createdFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    static Specification<Order> createdTo(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("createdAt"), to);
+    }
+
+    static Specification<Order> after(OrderCursor cursor) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                cb.and(
+                        cb.equal(root.get("createdAt"), cursor.createdAt()),
+                        cb.lessThan(root.get("id"), cursor.id())));
+    }
+}
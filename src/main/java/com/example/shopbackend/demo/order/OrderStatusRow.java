@@ -0,0 +1,4 @@
+package com.example.shopbackend.demo.order;
+
+public record OrderStatusRow(Long id, Status status) {
+}
@@ -10,11 +10,16 @@ public record OrderSummaryDto(
         Status status,
         LocalDateTime created) {
 
+    // used by the constructor projections in OrderRepository and OrderSummaryQueries
+    public OrderSummaryDto(Long orderId, Long totalValue, Integer itemCount, Status status, LocalDateTime created) {
+        this(orderId, BigDecimal.valueOf(totalValue), itemCount, status, created);
+    }
+
     public static OrderSummaryDto from(Order order) {
         return new OrderSummaryDto(
                 order.getId(),
                 order.getTotalValue(),
-                order.getItems().size(),
+                order.getItemCount(),
                 order.getStatus(),
                 order.getCreatedAt());
     }
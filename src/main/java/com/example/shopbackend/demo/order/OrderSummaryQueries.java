@@ -0,0 +1,11 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+interface OrderSummaryQueries {
+
+    // Newest first, read straight into OrderSummaryDto without loading Order entities
+    List<OrderSummaryDto> findSummaries(Specification<Order> spec, int limit);
+}
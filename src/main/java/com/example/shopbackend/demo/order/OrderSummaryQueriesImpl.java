@@ -0,0 +1,43 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class OrderSummaryQueriesImpl implements OrderSummaryQueries {
+
+    private final EntityManager em;
+
+    OrderSummaryQueriesImpl(EntityManager em) {
+        this.em = em;
+    }
+
+    @Override
+    public List<OrderSummaryDto> findSummaries(Specification<Order> spec, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<OrderSummaryDto> query = cb.createQuery(OrderSummaryDto.class);
+        Root<Order> order = query.from(Order.class);
+
+        query.select(cb.construct(OrderSummaryDto.class,
+                order.get("id"),
+                order.get("totalValue"),
+                order.get("itemCount"),
+                order.get("status"),
+                order.get("createdAt")))
+                .orderBy(cb.desc(order.get("createdAt")), cb.desc(order.get("id")));
+
+        Predicate predicate = spec.toPredicate(order, query, cb);
+        if (predicate != null)
+            query.where(predicate);
+
+        return em.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
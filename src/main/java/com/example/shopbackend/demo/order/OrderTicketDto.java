@@ -0,0 +1,13 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.UUID;
+
+import io.micrometer.common.lang.Nullable;
+
+public record OrderTicketDto(
+        UUID id,
+        OrderTicketStatus status,
+        @Nullable Long orderId,
+        @Nullable String errorCode,
+        @Nullable String errorMessage) {
+}
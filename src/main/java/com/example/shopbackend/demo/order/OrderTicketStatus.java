@@ -0,0 +1,7 @@
+package com.example.shopbackend.demo.order;
+
+public enum OrderTicketStatus {
+    QUEUED,
+    CREATED,
+    FAILED
+}
@@ -0,0 +1,18 @@
+package com.example.shopbackend.demo.order;
+
+// Pre-built responses for one order, shared by the detail, items and summary endpoints
+public record OrderView(
+        OrderDto order,
+        OrderSummaryDto summary,
+        String etag,
+        boolean immutable) {
+
+    public static OrderView from(Order order) {
+        return new OrderView(
+                OrderDto.from(order),
+                OrderSummaryDto.from(order),
+                // items and totals are frozen at creation, so only the status can change what we render
+                "\"" + order.getId() + "-" + order.getStatus().name() + "\"",
+                order.getStatus().isTerminal());
+    }
+}
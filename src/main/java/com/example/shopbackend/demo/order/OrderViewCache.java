@@ -0,0 +1,100 @@
+package com.example.shopbackend.demo.order;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// SHIPPED and CANCELLED orders never change, so their views live until evicted; others expire after a short ttl
+@Component
+class OrderViewCache {
+
+    private final Map<Long, Entry> entries;
+    private final long activeTtlNanos;
+    private final Counter hits;
+    private final Counter misses;
+
+    OrderViewCache(MeterRegistry meterRegistry,
+            @Value("${app.orders.view-cache.max-entries:10000}") int maxEntries,
+            @Value("${app.orders.view-cache.active-ttl:5s}") Duration activeTtl) {
+        this.activeTtlNanos = activeTtl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("orders.view_cache")
+                .description("Order view lookups by outcome")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("orders.view_cache")
+                .description("Order view lookups by outcome")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        meterRegistry.gauge("orders.view_cache.size", entries, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+    }
+
+    OrderView get(Long id, Function<Long, Order> loader) {
+        synchronized (entries) {
+            Entry cached = entries.get(id);
+            if (cached != null && !cached.expired(System.nanoTime())) {
+                hits.increment();
+                return cached.view();
+            }
+        }
+
+        misses.increment();
+        OrderView view = OrderView.from(loader.apply(id));
+        long expiresAt = view.immutable() ? Long.MAX_VALUE : System.nanoTime() + activeTtlNanos;
+        synchronized (entries) {
+            entries.put(id, new Entry(view, expiresAt));
+        }
+        return view;
+    }
+
+    void invalidate(Long id) {
+        invalidate(List.of(id));
+    }
+
+    // Drops the entries now and again once the status change commits, so a read racing the commit cannot keep a stale view
+    void invalidate(Collection<Long> ids) {
+        remove(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        List<Long> copy = List.copyOf(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                remove(copy);
+            }
+        });
+    }
+
+    private void remove(Collection<Long> ids) {
+        synchronized (entries) {
+            ids.forEach(entries::remove);
+        }
+    }
+
+    private record Entry(OrderView view, long expiresAt) {
+        boolean expired(long now) {
+            return expiresAt != Long.MAX_VALUE && now - expiresAt > 0;
+        }
+    }
+}
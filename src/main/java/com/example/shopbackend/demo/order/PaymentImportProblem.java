@@ -0,0 +1,9 @@
+package com.example.shopbackend.demo.order;
+
+import io.micrometer.common.lang.Nullable;
+
+public record PaymentImportProblem(
+        long line,
+        @Nullable Long orderId,
+        String reason) {
+}
@@ -0,0 +1,12 @@
+package com.example.shopbackend.demo.order;
+
+import java.util.List;
+
+public record PaymentImportResultDto(
+        long lines,
+        int updated,
+        int notFound,
+        int invalidTransition,
+        int malformed,
+        List<PaymentImportProblem> problems) {
+}
@@ -39,6 +39,16 @@ public enum Status {
         };
     }
 
+    public boolean isTerminal() {
+        return allowedNext().isEmpty();
+    }
+
+    public List<Status> allowedPrevious() {
+        return Arrays.stream(values())
+                .filter(previous -> previous.canTransitionTo(this))
+                .toList();
+    }
+
     public static List<String> allowedValues() {
         return Arrays.stream(values())
                 .map(Enum::name)
@@ -3,23 +3,39 @@ package com.example.shopbackend.demo.orderitem;
 import com.example.shopbackend.demo.order.Order;
 import com.example.shopbackend.demo.product.Product;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_order_item_order_product_quantity", columnList = "order_id, product_id, quantity"),
+        @Index(name = "idx_order_item_product_id", columnList = "product_id")
+})
 public class OrderItem {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     private Long id;
     private int quantity;
     private int unitPrice;
-    @ManyToOne
+    // copied from the product at creation so order reads never join product and history survives renames
+    @Column(nullable = false)
+    private String productName;
+    @Column(length = 500)
+    private String imageKey;
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
@@ -31,6 +47,8 @@ public class OrderItem {
         this.product = product;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
+        this.productName = product.getName();
+        this.imageKey = product.getImageKey();
     }
 
     public Long getId() {
@@ -57,6 +75,19 @@ public class OrderItem {
         this.unitPrice = unitPrice;
     }
 
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getImageKey() {
+        return imageKey;
+    }
+
+    // the lazy product reference already carries its id, so this never loads the product
+    public Long getProductId() {
+        return product.getId();
+    }
+
     public Product getProduct() {
         return product;
     }
@@ -7,14 +7,23 @@ public record OrderItemDto(
         String imageUrl,
         String productName) {
     public static OrderItemDto from(OrderItem item) {
-        String imageUrl = item.getProduct().getImageKey() == null
-                ? null
-                : "/api/images/" + item.getProduct().getImageKey();
-        return new OrderItemDto(
-                item.getProduct().getId(),
+        return of(
+                item.getProductId(),
                 item.getQuantity(),
                 item.getUnitPrice(),
+                item.getImageKey(),
+                item.getProductName());
+    }
+
+    public static OrderItemDto of(Long productId, int quantity, int unitPrice, String imageKey, String productName) {
+        String imageUrl = imageKey == null
+                ? null
+                : "/api/images/" + imageKey;
+        return new OrderItemDto(
+                productId,
+                quantity,
+                unitPrice,
                 imageUrl,
-                item.getProduct().getName());
+                productName);
     }
 }
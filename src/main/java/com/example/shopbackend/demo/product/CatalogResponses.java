@@ -0,0 +1,131 @@
+package com.example.shopbackend.demo.product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// GET /products as ready-to-write JSON and gzip bytes. A rendering is reused for as long as the listing has the same
+// content; after a change the next one is built off-thread so readers rarely pay for it.
+@Component
+class CatalogResponses implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogResponses.class);
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final Duration rebuildDelay;
+    private final ScheduledExecutorService rebuilder;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final Counter renders;
+    private volatile Rendered rendered;
+
+    CatalogResponses(ProductService productService, ProductCache productCache, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.products.catalog.rebuild-on-change:true}") boolean rebuildOnChange,
+            @Value("${app.products.catalog.rebuild-delay:100ms}") Duration rebuildDelay) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.rebuildDelay = rebuildDelay;
+        this.renders = Counter.builder("products.catalog.renders")
+                .description("Catalog listings serialized and compressed")
+                .register(meterRegistry);
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("catalog-rebuild").daemon().factory());
+        if (rebuildOnChange)
+            productCache.onInvalidate(this::scheduleRebuild);
+    }
+
+    Rendered current() {
+        List<ProductDto> products = productService.getAllDtos();
+        Rendered current = rendered;
+        // ProductCache usually hands out the same instance; a bypassed or disabled cache loads an equal copy
+        if (current != null && (current.products() == products || current.products().equals(products)))
+            return current;
+
+        current = Rendered.of(products, objectMapper);
+        renders.increment();
+        rendered = current;
+        return current;
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    // Changes arriving within the delay share one rebuild
+    private void scheduleRebuild() {
+        if (!rebuildPending.compareAndSet(false, true))
+            return;
+        try {
+            rebuilder.schedule(this::rebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            rebuildPending.set(false);
+        }
+    }
+
+    private void rebuild() {
+        rebuildPending.set(false);
+        try {
+            current();
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild the catalog response", e);
+        }
+    }
+
+    record Rendered(List<ProductDto> products, byte[] json, byte[] gzip, String etag) {
+
+        static Rendered of(List<ProductDto> products, ObjectMapper objectMapper) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(products);
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(json);
+                }
+                return new Rendered(products, json, compressed.toByteArray(), digest(json));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Content-derived, so every node hands out the same tag for the same catalog
+        String etag(boolean gzipped) {
+            return gzipped ? etag + "-gzip" : etag;
+        }
+
+        byte[] body(boolean gzipped) {
+            return gzipped ? gzip : json;
+        }
+
+        private static String digest(byte[] json) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+                return HexFormat.of().formatHex(hash, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
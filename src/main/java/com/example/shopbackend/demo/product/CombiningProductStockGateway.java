@@ -0,0 +1,292 @@
+package com.example.shopbackend.demo.product;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.common.NotFoundException;
+import com.example.shopbackend.demo.common.OutOfStockException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Tuple;
+
+// Collects concurrent reservations per product for a short window and applies them as one update
+@Repository
+@ConditionalOnProperty(name = "app.stock.gateway", havingValue = "combining")
+public class CombiningProductStockGateway implements ProductStockGateway, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CombiningProductStockGateway.class);
+
+    private final EntityManager em;
+    private final StockShards stockShards;
+    private final ProductCache cache;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService flusher;
+    private final long windowMicros;
+    private final Duration timeout;
+    private final DistributionSummary batchSize;
+    private final Map<Long, Combiner> combiners = new ConcurrentHashMap<>();
+
+    public CombiningProductStockGateway(EntityManager em, StockShards stockShards, ProductCache cache,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.stock.combining.window:2ms}") Duration window,
+            @Value("${app.stock.combining.timeout:5s}") Duration timeout,
+            @Value("${app.stock.combining.flush-threads:4}") int flushThreads) {
+        this.em = em;
+        this.stockShards = stockShards;
+        this.cache = cache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flusher = Executors.newScheduledThreadPool(flushThreads,
+                Thread.ofPlatform().name("stock-combiner-", 0).daemon().factory());
+        this.windowMicros = TimeUnit.NANOSECONDS.toMicros(window.toNanos());
+        this.timeout = timeout;
+        this.batchSize = DistributionSummary.builder("stock.combiner.batch.size")
+                .description("Reservations applied per combined stock update")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean tryDecreaseStock(Map<Long, Integer> quantities) {
+        Map<Long, CompletableFuture<Void>> pending = new TreeMap<>();
+        quantities.forEach((id, qty) -> pending.put(id, combiner(id).submit(qty, false)));
+
+        try {
+            CompletableFuture.allOf(pending.values().toArray(CompletableFuture[]::new))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw releaseGrantedAndFail(pending, quantities);
+        } catch (TimeoutException e) {
+            pending.forEach((id, result) -> result.thenRun(() -> release(id, quantities.get(id))));
+            throw new CannotAcquireLockException("Timed out waiting for combined stock reservation");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach((id, result) -> result.thenRun(() -> release(id, quantities.get(id))));
+            throw new CannotAcquireLockException("Interrupted waiting for combined stock reservation");
+        }
+
+        releaseOnRollback(quantities);
+        return true;
+    }
+
+    // Releases commit on their own, so they wait for the caller's commit
+    @Override
+    public void increaseStock(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            quantities.forEach(this::release);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                quantities.forEach(CombiningProductStockGateway.this::release);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        combiners.values().forEach(Combiner::flush);
+        flusher.shutdown();
+    }
+
+    private Combiner combiner(Long productId) {
+        return combiners.computeIfAbsent(productId, Combiner::new);
+    }
+
+    private void release(Long productId, int quantity) {
+        combiner(productId).submit(quantity, true).whenComplete((ok, e) -> {
+            if (e != null)
+                log.error("Failed to release reserved stock. productId={}, quantity={}", productId, quantity, e);
+        });
+    }
+
+    private RuntimeException releaseGrantedAndFail(Map<Long, CompletableFuture<Void>> pending,
+            Map<Long, Integer> quantities) {
+        RuntimeException failure = null;
+        for (Map.Entry<Long, CompletableFuture<Void>> entry : pending.entrySet()) {
+            if (!entry.getValue().isCompletedExceptionally())
+                release(entry.getKey(), quantities.get(entry.getKey()));
+            else if (failure == null)
+                failure = cause(entry.getValue());
+        }
+        return failure;
+    }
+
+    // Reservations commit in the combiner's own transaction, so a rolled back order has to give them back
+    private void releaseOnRollback(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED)
+                    quantities.forEach(CombiningProductStockGateway.this::release);
+            }
+        });
+    }
+
+    private static RuntimeException cause(CompletableFuture<Void> result) {
+        try {
+            result.join();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void apply(Long productId, List<Request> batch) {
+        batchSize.record(batch.size());
+        Map<Request, RuntimeException> failures;
+        try {
+            failures = transactionTemplate.execute(status -> {
+                Map<Request, RuntimeException> allocated = allocate(productId, batch);
+                // releases run after the caller's commit, so this is the only place that sees the row change
+                if (allocated.size() < batch.size())
+                    cache.invalidate(productId);
+                return allocated;
+            });
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.result().completeExceptionally(e));
+            return;
+        }
+
+        for (Request request : batch) {
+            RuntimeException failure = failures.get(request);
+            if (failure == null)
+                request.result().complete(null);
+            else
+                request.result().completeExceptionally(failure);
+        }
+    }
+
+    private Map<Request, RuntimeException> allocate(Long productId, List<Request> batch) {
+        int released = 0;
+        int requested = 0;
+        for (Request request : batch) {
+            if (request.release())
+                released += request.quantity();
+            else
+                requested += request.quantity();
+        }
+
+        if (decrease(productId, requested - released))
+            return Map.of();
+
+        List<Tuple> row = em.createQuery("select p.stock, p.stockShards from Product p where p.id = :id", Tuple.class)
+                .setParameter("id", productId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+
+        Map<Request, RuntimeException> failures = new HashMap<>();
+        if (row.isEmpty()) {
+            for (Request request : batch)
+                if (!request.release())
+                    failures.put(request, new NotFoundException("Product", productId));
+            return failures;
+        }
+
+        int shards = row.get(0).get(1, Integer.class);
+        if (shards > 0)
+            return allocateFromShards(productId, shards, released, batch);
+
+        int available = row.get(0).get(0, Integer.class) + released;
+        int granted = 0;
+        for (Request request : batch) {
+            if (request.release())
+                continue;
+            if (request.quantity() <= available - granted)
+                granted += request.quantity();
+            else
+                failures.put(request, new OutOfStockException(productId, request.quantity(), available - granted));
+        }
+
+        decrease(productId, granted - released);
+        return failures;
+    }
+
+    // Stock of a sharded product is not in its row, so each reservation goes to StockShards on its own
+    private Map<Request, RuntimeException> allocateFromShards(Long productId, int shards, int released,
+            List<Request> batch) {
+        if (released > 0)
+            stockShards.give(productId, shards, released);
+
+        Map<Request, RuntimeException> failures = new HashMap<>();
+        for (Request request : batch)
+            if (!request.release() && !stockShards.tryTake(productId, request.quantity()))
+                failures.put(request,
+                        new OutOfStockException(productId, request.quantity(), stockShards.available(productId)));
+        return failures;
+    }
+
+    private boolean decrease(Long productId, int delta) {
+        return em.createQuery("""
+                update Product p
+                set p.stock = p.stock - :delta
+                where p.id = :id and p.stockShards = 0 and p.stock >= :delta
+                """)
+                .setParameter("id", productId)
+                .setParameter("delta", delta)
+                .executeUpdate() == 1;
+    }
+
+    private record Request(int quantity, boolean release, CompletableFuture<Void> result) {
+    }
+
+    private final class Combiner {
+        private final Long productId;
+        private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Combiner(Long productId) {
+            this.productId = productId;
+        }
+
+        CompletableFuture<Void> submit(int quantity, boolean release) {
+            Request request = new Request(quantity, release, new CompletableFuture<>());
+            queue.add(request);
+            if (scheduled.compareAndSet(false, true))
+                flusher.schedule(this::flush, windowMicros, TimeUnit.MICROSECONDS);
+            return request.result();
+        }
+
+        void flush() {
+            scheduled.set(false);
+            List<Request> batch = new ArrayList<>();
+            for (Request request; (request = queue.poll()) != null;)
+                batch.add(request);
+
+            if (!batch.isEmpty())
+                apply(productId, batch);
+        }
+    }
+}
@@ -1,31 +1,109 @@
 package com.example.shopbackend.demo.product;
 
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hibernate.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
 import jakarta.transaction.Transactional;
 
 @Repository
+@ConditionalOnProperty(name = "app.stock.gateway", havingValue = "jpa", matchIfMissing = true)
 public class JpaProductStockGateway implements ProductStockGateway {
     private final EntityManager em;
+    private final StockShards stockShards;
+    private final ProductCache cache;
 
-    public JpaProductStockGateway(EntityManager em) {
+    public JpaProductStockGateway(EntityManager em, StockShards stockShards, ProductCache cache) {
         this.em = em;
+        this.stockShards = stockShards;
+        this.cache = cache;
+    }
+
+    @Override
+    @Transactional
+    public boolean tryDecreaseStock(Map<Long, Integer> quantities) {
+        // one statement over an ascending id range: every cart locks its product rows in the same order
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+
+        em.flush();
+        // a failed cart rolls back to the savepoint, undoing the lines that did fit, so the caller diagnoses
+        // the failure from the stock as it was
+        Session session = em.unwrap(Session.class);
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        int updated = bulkUpdate(ordered, "-");
+
+        boolean reserved = updated == ordered.size();
+        if (!reserved) {
+            // sharded products are skipped by the bulk update and reserved shard by shard
+            Map<Long, Integer> sharded = shardCounts(ordered);
+            reserved = updated + sharded.size() == ordered.size()
+                    && sharded.keySet()
+                            .stream()
+                            .allMatch(id -> stockShards.tryTake(id, ordered.get(id)));
+        }
+        if (reserved)
+            session.doWork(connection -> connection.releaseSavepoint(savepoint));
+        else
+            session.doWork(connection -> connection.rollback(savepoint));
+
+        // bulk update bypasses the persistence context, drop stale Product copies
+        em.clear();
+        if (reserved)
+            cache.invalidate(ordered.keySet());
+        return reserved;
     }
 
     @Override
     @Transactional
-    public boolean tryDecreaseStock(Long productId, int qty) {
-        int updated = em.createQuery("""
+    public void increaseStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+
+        em.flush();
+        if (bulkUpdate(ordered, "+") != ordered.size())
+            shardCounts(ordered).forEach((id, shards) -> stockShards.give(id, shards, ordered.get(id)));
+
+        em.clear();
+        cache.invalidate(ordered.keySet());
+    }
+
+    private int bulkUpdate(Map<Long, Integer> ordered, String sign) {
+        StringBuilder amount = new StringBuilder("case p.id");
+        for (int i = 0; i < ordered.size(); i++)
+            amount.append(" when :id").append(i).append(" then :qty").append(i);
+        amount.append(" end");
+
+        Query update = em.createQuery("""
                 update Product p
-                set p.stock = p.stock - :qty
-                where p.id = :id and p.stock >= :qty
-                    """)
-                .setParameter("id", productId)
-                .setParameter("qty", qty)
-                .executeUpdate();
-
-        return updated == 1;
+                set p.stock = p.stock %1$s %2$s
+                where p.id in :ids and p.stockShards = 0 and p.stock %1$s %2$s >= 0
+                """.formatted(sign, amount))
+                .setParameter("ids", ordered.keySet());
+
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            update.setParameter("id" + i, entry.getKey());
+            update.setParameter("qty" + i, entry.getValue());
+            i++;
+        }
+
+        return update.executeUpdate();
     }
 
+    private Map<Long, Integer> shardCounts(Map<Long, Integer> ordered) {
+        Map<Long, Integer> shards = new TreeMap<>();
+        em.createQuery("select p.id, p.stockShards from Product p where p.id in :ids and p.stockShards > 0",
+                Tuple.class)
+                .setParameter("ids", ordered.keySet())
+                .getResultList()
+                .forEach(row -> shards.put(row.get(0, Long.class), row.get(1, Integer.class)));
+        return shards;
+    }
 }
@@ -0,0 +1,244 @@
+package com.example.shopbackend.demo.product;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+// Leases blocks of stock from the product row and serves reservations from an in-memory counter per node
+@Repository
+@ConditionalOnProperty(name = "app.stock.gateway", havingValue = "leasing")
+public class LeasingProductStockGateway implements ProductStockGateway, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LeasingProductStockGateway.class);
+
+    private final EntityManager em;
+    private final StockShards stockShards;
+    private final ProductCache cache;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService expirer;
+    private final int blockSize;
+    private final long ttlNanos;
+    private final Counter leasedUnits;
+    private final Counter returnedUnits;
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    public LeasingProductStockGateway(EntityManager em, StockShards stockShards, ProductCache cache,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.stock.leasing.block-size:20}") int blockSize,
+            @Value("${app.stock.leasing.ttl:30s}") Duration ttl) {
+        this.em = em;
+        this.stockShards = stockShards;
+        this.cache = cache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        this.ttlNanos = ttl.toNanos();
+        this.leasedUnits = Counter.builder("stock.lease.units")
+                .description("Stock units moved between the product row and node-local leases")
+                .tag("direction", "leased")
+                .register(meterRegistry);
+        this.returnedUnits = Counter.builder("stock.lease.units")
+                .description("Stock units moved between the product row and node-local leases")
+                .tag("direction", "returned")
+                .register(meterRegistry);
+        this.expirer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("stock-lease-expirer").daemon().factory());
+
+        long sweepMillis = Math.max(1, ttl.toMillis() / 2);
+        expirer.scheduleWithFixedDelay(this::returnExpired, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean tryDecreaseStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> taken = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            if (!lease(line.getKey()).take(line.getValue())) {
+                taken.forEach((id, quantity) -> lease(id).put(quantity));
+                return false;
+            }
+            taken.put(line.getKey(), line.getValue());
+        }
+
+        putBackOnRollback(taken);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void increaseStock(Map<Long, Integer> quantities) {
+        em.flush();
+        new TreeMap<>(quantities).forEach(this::addToRow);
+        em.clear();
+    }
+
+    // Other nodes may still hold leased units of a product whose row is empty
+    @Override
+    public boolean rowHoldsAllStock() {
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        expirer.shutdownNow();
+        leases.values().forEach(Lease::giveBack);
+    }
+
+    private Lease lease(Long productId) {
+        return leases.computeIfAbsent(productId, Lease::new);
+    }
+
+    // Leased units are gone from the product row, so a rolled back order hands them back to the lease
+    private void putBackOnRollback(Map<Long, Integer> taken) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED)
+                    taken.forEach((id, quantity) -> lease(id).put(quantity));
+            }
+        });
+    }
+
+    private void returnExpired() {
+        long now = System.nanoTime();
+        for (Lease lease : leases.values())
+            if (now - lease.leasedAt > ttlNanos)
+                lease.giveBack();
+    }
+
+    // Takes a whole block when the row has it, otherwise only what this reservation is missing
+    private int leaseFromRow(Long productId, int missing) {
+        int block = Math.max(blockSize, missing);
+        Integer leased = transactionTemplate.execute(status -> {
+            if (takeFromRow(productId, block))
+                return block;
+            if (block > missing && takeFromRow(productId, missing))
+                return missing;
+            return 0;
+        });
+        leasedUnits.increment(leased);
+        return leased;
+    }
+
+    // A sharded product is skipped by the row update and leased from its shard rows instead
+    private boolean takeFromRow(Long productId, int quantity) {
+        int updated = em.createQuery("""
+                update Product p
+                set p.stock = p.stock - :quantity
+                where p.id = :id and p.stockShards = 0 and p.stock >= :quantity
+                """)
+                .setParameter("id", productId)
+                .setParameter("quantity", quantity)
+                .executeUpdate();
+        boolean taken = updated == 1 || shardCount(productId) > 0 && stockShards.tryTake(productId, quantity);
+        if (taken)
+            cache.invalidate(productId);
+        return taken;
+    }
+
+    private void addToRow(Long productId, int quantity) {
+        int updated = em.createQuery("""
+                update Product p
+                set p.stock = p.stock + :quantity
+                where p.id = :id and p.stockShards = 0
+                """)
+                .setParameter("id", productId)
+                .setParameter("quantity", quantity)
+                .executeUpdate();
+        if (updated == 0) {
+            int shards = shardCount(productId);
+            if (shards > 0)
+                stockShards.give(productId, shards, quantity);
+        }
+        cache.invalidate(productId);
+    }
+
+    private int shardCount(Long productId) {
+        List<Integer> shards = em.createQuery("select p.stockShards from Product p where p.id = :id", Integer.class)
+                .setParameter("id", productId)
+                .getResultList();
+        return shards.isEmpty() ? 0 : shards.get(0);
+    }
+
+    private final class Lease {
+        private final Long productId;
+        private final AtomicInteger available = new AtomicInteger();
+        private volatile long leasedAt = System.nanoTime();
+
+        Lease(Long productId) {
+            this.productId = productId;
+        }
+
+        boolean take(int quantity) {
+            if (tryTake(quantity))
+                return true;
+
+            // one refill at a time per product; takers that fit in the counter never wait here
+            synchronized (this) {
+                while (!tryTake(quantity)) {
+                    int missing = quantity - available.get();
+                    if (missing <= 0)
+                        continue;
+
+                    int leased = leaseFromRow(productId, missing);
+                    if (leased == 0)
+                        return false;
+
+                    available.addAndGet(leased);
+                    leasedAt = System.nanoTime();
+                }
+                return true;
+            }
+        }
+
+        void put(int quantity) {
+            available.addAndGet(quantity);
+        }
+
+        synchronized void giveBack() {
+            int unused = available.getAndSet(0);
+            if (unused == 0)
+                return;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> addToRow(productId, unused));
+                returnedUnits.increment(unused);
+            } catch (RuntimeException e) {
+                available.addAndGet(unused);
+                log.error("Failed to return leased stock. productId={}, quantity={}", productId, unused, e);
+            }
+        }
+
+        private boolean tryTake(int quantity) {
+            for (int current = available.get(); current >= quantity; current = available.get())
+                if (available.compareAndSet(current, current - quantity))
+                    return true;
+            return false;
+        }
+    }
+}
@@ -7,8 +7,13 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import org.hibernate.annotations.Formula;
 
 @Entity
+@Table(indexes = @Index(name = "idx_product_price", columnList = "price, id"))
 public class Product {
     @Id
     @GeneratedValue
@@ -18,6 +23,12 @@ public class Product {
     private int price;
     private int stock;
 
+    // 0 = stock lives in the stock column, otherwise in that many product_stock_shard rows
+    private int stockShards;
+
+    @Formula("case when stock_shards > 0 then (select coalesce(sum(s.stock), 0) from product_stock_shard s where s.product_id = id) else stock end")
+    private int availableStock;
+
     @Nullable
     @Column(length = 500)
     private String imageKey;
@@ -69,6 +80,20 @@ public class Product {
         return stock;
     }
 
+    public int getStockShards() {
+        return stockShards;
+    }
+
+    public int getAvailableStock() {
+        return stockShards > 0 ? availableStock : stock;
+    }
+
+    void applyStockShards(int stockShards, int availableStock) {
+        this.stockShards = stockShards;
+        this.availableStock = availableStock;
+        this.stock = stockShards > 0 ? 0 : availableStock;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
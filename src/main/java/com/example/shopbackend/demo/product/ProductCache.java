@@ -0,0 +1,219 @@
+package com.example.shopbackend.demo.product;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Product views keyed by id plus the full listing. Concurrent misses share one load; entries past their ttl are
+// still served for stale-while-revalidate while a single background refresh replaces them.
+@Component
+class ProductCache implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCache.class);
+    private static final String ALL = "all";
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Map<Object, Entry> entries;
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor refresher;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleHits;
+    private final Counter evictions;
+
+    ProductCache(MeterRegistry meterRegistry,
+            @Value("${app.products.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.products.cache.ttl:30s}") Duration ttl,
+            @Value("${app.products.cache.stale-while-revalidate:5m}") Duration staleWhileRevalidate) {
+        this.enabled = maxEntries > 0;
+        this.ttlNanos = ttl.toNanos();
+        this.staleNanos = staleWhileRevalidate.toNanos();
+        this.evictions = Counter.builder("products.cache.evictions")
+                .description("Product cache entries dropped to stay within max-entries")
+                .register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() <= maxEntries)
+                    return false;
+                evictions.increment();
+                return true;
+            }
+        };
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.staleHits = counter(meterRegistry, "stale");
+        meterRegistry.gauge("products.cache.size", entries, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+
+        this.refresher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(256),
+                Thread.ofPlatform().name("product-cache-refresh").daemon().factory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    ProductDto get(Long id, Supplier<ProductDto> loader) {
+        return (ProductDto) lookup(id, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<ProductDto> getAll(Supplier<List<ProductDto>> loader) {
+        return (List<ProductDto>) lookup(ALL, () -> List.copyOf(loader.get()));
+    }
+
+    void invalidate(Long id) {
+        invalidate(List.of(id));
+    }
+
+    // Every change also drops the listing. Entries go now and again once the writing transaction completes,
+    // so a read racing the commit cannot put the old state back.
+    void invalidate(Collection<Long> ids) {
+        List<Object> keys = new ArrayList<>(ids);
+        keys.add(ALL);
+        remove(keys);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            listeners.forEach(Runnable::run);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                remove(keys);
+                listeners.forEach(Runnable::run);
+            }
+        });
+    }
+
+    // Runs after each invalidation has taken effect, on the invalidating thread
+    void onInvalidate(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    // Reads inside a transaction may see its own uncommitted writes, so they never fill or consult the cache
+    private Object lookup(Object key, Supplier<?> loader) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive())
+            return loader.get();
+
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            hits.increment();
+            return cached.value();
+        }
+        if (cached != null && now - cached.loadedAt() < ttlNanos + staleNanos) {
+            staleHits.increment();
+            refreshInBackground(key, loader);
+            return cached.value();
+        }
+
+        misses.increment();
+        return join(load(key, loader));
+    }
+
+    private void refreshInBackground(Object key, Supplier<?> loader) {
+        if (loading.containsKey(key))
+            return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(key, loader).join();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refresh product cache entry {}, serving the stale value", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    // The first caller runs the loader; others wait on its future. A result is only stored while its future is
+    // still registered, which invalidate() prevents for loads that started before the change.
+    private CompletableFuture<Object> load(Object key, Supplier<?> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (existing != null)
+            return existing;
+
+        try {
+            Object value = loader.get();
+            synchronized (entries) {
+                if (loading.remove(key, future))
+                    entries.put(key, new Entry(value, System.nanoTime()));
+            }
+            future.complete(value);
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void remove(Collection<Object> keys) {
+        synchronized (entries) {
+            for (Object key : keys) {
+                entries.remove(key);
+                loading.remove(key);
+            }
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("products.cache")
+                .description("Product cache lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(Object value, long loadedAt) {
+    }
+}
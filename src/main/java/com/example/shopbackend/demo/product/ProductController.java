@@ -3,16 +3,22 @@ package com.example.shopbackend.demo.product;
 import java.net.URI;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.shopbackend.demo.common.AcceptEncoding;
+
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -22,17 +28,16 @@ import org.springframework.web.bind.annotation.RequestPart;
 @RequestMapping("/products")
 public class ProductController {
     private final ProductService productService;
+    private final CatalogResponses catalogResponses;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, CatalogResponses catalogResponses) {
         this.productService = productService;
+        this.catalogResponses = catalogResponses;
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProductDto> getById(@PathVariable Long id) {
-        Product product = productService.getById(id);
-        ProductDto dto = ProductDto.from(product);
-
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok(productService.getDto(id));
     }
 
     @GetMapping(params = "query")
@@ -59,12 +64,23 @@ public class ProductController {
                 .toList();
     }
 
+    // Pre-rendered bytes; Spring answers 304 itself when If-None-Match matches the ETag
     @GetMapping(params = { "!inStock", "!from", "!to", "!query" })
-    public List<ProductDto> getAll() {
-        return productService.getAll()
-                .stream()
-                .map(ProductDto::from)
-                .toList();
+    public ResponseEntity<byte[]> getAll(
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogResponses.Rendered catalog = catalogResponses.current();
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        byte[] body = catalog.body(gzip);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .eTag(catalog.etag(gzip))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip)
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
     }
 
     @PostMapping
@@ -89,6 +105,13 @@ public class ProductController {
         return ResponseEntity.ok(ProductDto.from(updated));
     }
 
+    @PutMapping("/{id}/stock-shards")
+    public ResponseEntity<ProductDto> updateStockShards(@PathVariable Long id,
+            @Valid @RequestBody UpdateStockShardsRequest request) {
+        Product updated = productService.updateStockShards(id, request.shards());
+        return ResponseEntity.ok(ProductDto.from(updated));
+    }
+
     @PostMapping("/{id}/image")
     public ResponseEntity<ProductDto> addImage(@PathVariable long id, @RequestPart("file") MultipartFile file) {
         Product updated = productService.uploadImage(id, file);
@@ -11,6 +11,7 @@ public record ProductDto(
     public static ProductDto from(Product product) {
         String imageUrl = product.getImageKey() != null ? "/api/images/" + product.getImageKey() : null;
 
-        return new ProductDto(product.getId(), product.getName(), product.getPrice(), product.getStock(), imageUrl);
+        return new ProductDto(product.getId(), product.getName(), product.getPrice(), product.getAvailableStock(),
+                imageUrl);
     }
 }
@@ -1,15 +1,27 @@
 package com.example.shopbackend.demo.product;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.persistence.LockModeType;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNameContainingIgnoreCase(String query);
 
-    List<Product> findByStockGreaterThan(int stock);
+    List<Product> findByAvailableStockGreaterThan(int stock);
 
-    List<Product> findByStock(int stock);
+    List<Product> findByAvailableStock(int stock);
 
     List<Product> findByPriceBetween(int from, int to);
-}
\ No newline at end of file
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Product> findForUpdateById(Long id);
+
+    @Query("select new com.example.shopbackend.demo.product.StockLevel(p.id, p.availableStock) from Product p where p.id in :ids")
+    List<StockLevel> findStockLevels(Collection<Long> ids);
+}
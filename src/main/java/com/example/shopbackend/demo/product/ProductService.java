@@ -1,6 +1,11 @@
 package com.example.shopbackend.demo.product;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,15 +25,22 @@ import jakarta.transaction.Transactional;
 public class ProductService {
     private final ProductRepository repository;
     private final ProductStockGateway productStockGateway;
+    private final StockShards stockShards;
+    private final SoldOutProducts soldOutProducts;
     private final ImageStorage imageStorage;
+    private final ProductCache cache;
 
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
 
     public ProductService(final ProductRepository repository, final ProductStockGateway productStockGateway,
-            final ImageStorage imageStorage) {
+            final StockShards stockShards, final SoldOutProducts soldOutProducts, final ImageStorage imageStorage,
+            final ProductCache cache) {
         this.repository = repository;
         this.productStockGateway = productStockGateway;
+        this.stockShards = stockShards;
+        this.soldOutProducts = soldOutProducts;
         this.imageStorage = imageStorage;
+        this.cache = cache;
     }
 
     public Product getById(Long id) {
@@ -36,28 +48,84 @@ public class ProductService {
                 .orElseThrow(() -> new NotFoundException("Product", id));
     }
 
+    public ProductDto getDto(Long id) {
+        return cache.get(id, () -> ProductDto.from(getById(id)));
+    }
+
+    public List<ProductDto> getAllDtos() {
+        return cache.getAll(() -> getAll().stream().map(ProductDto::from).toList());
+    }
+
     public List<Product> getByName(String query) {
         return repository.findByNameContainingIgnoreCase(query);
     }
 
     public List<Product> getInStock(boolean inStock) {
         if (inStock)
-            return repository.findByStockGreaterThan(0);
+            return repository.findByAvailableStockGreaterThan(0);
 
-        return repository.findByStock(0);
+        return repository.findByAvailableStock(0);
+    }
+
+    public Map<Long, Product> getAllById(Collection<Long> ids) {
+        Map<Long, Product> products = repository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        for (Long id : ids)
+            if (!products.containsKey(id))
+                throw new NotFoundException("Product", id);
+
+        return products;
     }
 
     @Transactional
-    public Product reserveStockOrThrow(Long id, int quantity) {
-        boolean ok = productStockGateway.tryDecreaseStock(id, quantity);
-        if (!ok) {
-            int availableStock = repository.findById(id)
-                    .map(Product::getStock)
-                    .orElse(0);
-            throw new OutOfStockException(id, quantity, availableStock);
-        }
+    public Map<Long, Product> reserveStockOrThrow(Map<Long, Integer> quantities) {
+        // known sold-out products are rejected before any statement runs
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet())
+            if (soldOutProducts.isSoldOut(line.getKey()))
+                throw new OutOfStockException(line.getKey(), line.getValue(), 0);
+
+        if (!productStockGateway.tryDecreaseStock(quantities))
+            throw outOfStock(quantities);
+
+        Map<Long, Product> products = getAllById(quantities.keySet());
+        if (productStockGateway.rowHoldsAllStock())
+            for (Product product : products.values())
+                if (product.getAvailableStock() == 0)
+                    soldOutProducts.markSoldOutAfterCommit(product.getId());
+        return products;
+    }
+
+    @Transactional
+    public void restock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty())
+            return;
+
+        productStockGateway.increaseStock(quantities);
+        quantities.keySet().forEach(soldOutProducts::markAvailable);
+    }
 
-        return getById(id);
+    // Diagnoses a failed reservation from the stock levels it left untouched
+    private RuntimeException outOfStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> stock = repository.findStockLevels(quantities.keySet())
+                .stream()
+                .collect(Collectors.toMap(StockLevel::productId, StockLevel::stock));
+
+        TreeMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        for (Long id : ordered.keySet())
+            if (!stock.containsKey(id))
+                return new NotFoundException("Product", id);
+            else if (stock.get(id) == 0 && productStockGateway.rowHoldsAllStock())
+                soldOutProducts.markSoldOut(id);
+
+        Map.Entry<Long, Integer> shortLine = ordered.entrySet()
+                .stream()
+                .filter(line -> stock.get(line.getKey()) < line.getValue())
+                .findFirst()
+                .orElse(ordered.firstEntry());
+
+        return new OutOfStockException(shortLine.getKey(), shortLine.getValue(), stock.get(shortLine.getKey()));
     }
 
     public List<Product> getPriceBetween(int from, int to) {
@@ -71,14 +139,20 @@ public class ProductService {
     }
 
     public Product create(final String name, int price, int stock) {
-        return repository.save(new Product(name, price, stock));
+        Product created = repository.save(new Product(name, price, stock));
+        cache.invalidate(created.getId());
+        return created;
     }
 
     @Transactional
     public void delete(Long id) {
         Product product = getById(id);
         deleteImage(id);
+        if (product.getStockShards() > 0)
+            stockShards.collect(id);
         repository.delete(product);
+        soldOutProducts.markAvailable(id);
+        cache.invalidate(id);
     }
 
     @Transactional
@@ -87,13 +161,37 @@ public class ProductService {
 
         product.setName(req.name());
         product.setPrice(req.price());
-        product.setStock(req.stock());
+        if (product.getStockShards() > 0) {
+            stockShards.distribute(id, product.getStockShards(), req.stock());
+            product.applyStockShards(product.getStockShards(), req.stock());
+        } else
+            product.setStock(req.stock());
 
         repository.save(product);
+        soldOutProducts.markAvailable(id);
+        cache.invalidate(id);
 
         return product;
     }
 
+    // Moves a hot product's stock into shard rows (shards > 1) or back into the product row (shards = 1)
+    @Transactional
+    public Product updateStockShards(Long id, int shards) {
+        Product product = repository.findForUpdateById(id)
+                .orElseThrow(() -> new NotFoundException("Product", id));
+
+        int total = product.getStockShards() > 0 ? stockShards.collect(id) : product.getStock();
+        if (shards > 1) {
+            stockShards.distribute(id, shards, total);
+            product.applyStockShards(shards, total);
+        } else
+            product.applyStockShards(0, total);
+
+        soldOutProducts.markAvailable(id);
+        cache.invalidate(id);
+        return repository.save(product);
+    }
+
     public Product uploadImage(long id, MultipartFile file) {
         if (file.isEmpty())
             throw new IllegalArgumentException("Uploaded file is empty");
@@ -129,7 +227,9 @@ public class ProductService {
 
         product.setImageKey(imageKey);
 
-        return repository.save(product);
+        Product saved = repository.save(product);
+        cache.invalidate(id);
+        return saved;
     }
 
     @Transactional
@@ -142,6 +242,7 @@ public class ProductService {
 
         product.setImageKey(null);
         repository.save(product);
+        cache.invalidate(id);
 
         try {
             imageStorage.delete(oldKey);
@@ -1,5 +1,16 @@
 package com.example.shopbackend.demo.product;
 
+import java.util.Map;
+
 public interface ProductStockGateway {
-    boolean tryDecreaseStock(Long prouductId, int qty);
+
+    // All-or-nothing per call: on false no stock has been taken
+    boolean tryDecreaseStock(Map<Long, Integer> quantities);
+
+    void increaseStock(Map<Long, Integer> quantities);
+
+    // False when units can sit outside the product row, so an empty row does not mean the product is sold out
+    default boolean rowHoldsAllStock() {
+        return true;
+    }
 }
@@ -0,0 +1,54 @@
+package com.example.shopbackend.demo.product;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+@Entity
+@Table(name = "product_stock_shard", uniqueConstraints = @UniqueConstraint(columnNames = { "product_id", "shard_no" }))
+public class ProductStockShard {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "shard_no", nullable = false)
+    private int shardNo;
+
+    private int stock;
+
+    protected ProductStockShard() {
+
+    }
+
+    public ProductStockShard(Long productId, int shardNo, int stock) {
+        this.productId = productId;
+        this.shardNo = shardNo;
+        this.stock = stock;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getShardNo() {
+        return shardNo;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int stock) {
+        this.stock = stock;
+    }
+}
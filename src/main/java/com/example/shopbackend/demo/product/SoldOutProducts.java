@@ -0,0 +1,64 @@
+package com.example.shopbackend.demo.product;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Node-local hint of products seen at zero stock; entries expire so changes made on other nodes are picked up
+@Component
+class SoldOutProducts {
+    private final Map<Long, Long> soldOutUntil = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final Counter rejected;
+
+    SoldOutProducts(MeterRegistry meterRegistry,
+            @Value("${app.stock.sold-out-ttl:2s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        this.rejected = Counter.builder("stock.sold_out.rejected")
+                .description("Reservations rejected without touching the database")
+                .register(meterRegistry);
+    }
+
+    boolean isSoldOut(Long productId) {
+        Long until = soldOutUntil.get(productId);
+        if (until == null)
+            return false;
+        if (System.nanoTime() - until > 0) {
+            soldOutUntil.remove(productId, until);
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    void markSoldOut(Long productId) {
+        soldOutUntil.put(productId, System.nanoTime() + ttlNanos);
+    }
+
+    // For a reservation that emptied the product: a rolled back order leaves the stock where it was
+    void markSoldOutAfterCommit(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markSoldOut(productId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markSoldOut(productId);
+            }
+        });
+    }
+
+    void markAvailable(Long productId) {
+        soldOutUntil.remove(productId);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.shopbackend.demo.product;
+
+public record StockLevel(
+        Long productId,
+        int stock) {
+}
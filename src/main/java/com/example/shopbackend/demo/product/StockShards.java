@@ -0,0 +1,169 @@
+package com.example.shopbackend.demo.product;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+
+// Stock of a sharded product lives in product_stock_shard rows so concurrent orders lock different rows.
+// Within a transaction a product's shard rows are only locked in ascending shardNo order, counting the rows a failed
+// conditional update still holds, so two orders can never wait on each other's shards.
+@Component
+class StockShards {
+    private final EntityManager em;
+
+    StockShards(EntityManager em) {
+        this.em = em;
+    }
+
+    boolean tryTake(Long productId, int quantity) {
+        // a plain read first: failed conditional updates would still hold their row locks
+        List<Integer> stock = em.createQuery("""
+                select s.stock from ProductStockShard s
+                where s.productId = :productId
+                order by s.shardNo
+                """, Integer.class)
+                .setParameter("productId", productId)
+                .getResultList();
+        if (stock.stream().mapToInt(Integer::intValue).sum() < quantity)
+            return false;
+
+        // random shard that covers the quantity, spilling over to the covering ones above it
+        BitSet held = heldLocks(productId);
+        int start = ThreadLocalRandom.current().nextInt(stock.size());
+        for (int i = 0; i < stock.size(); i++) {
+            int first = (start + i) % stock.size();
+            if (stock.get(first) < quantity || !lockable(held, first))
+                continue;
+            for (int shardNo = first; shardNo < stock.size(); shardNo++)
+                if (stock.get(shardNo) >= quantity && lockable(held, shardNo) && add(productId, shardNo, -quantity))
+                    return true;
+            break;
+        }
+
+        // no single shard covers it: take it across shards and even them out again. Locking all of them in order is
+        // only safe while the rows held so far are a prefix; otherwise the reservation fails rather than deadlock.
+        if (held.nextClearBit(0) < held.length())
+            return false;
+        List<ProductStockShard> all = lockAll(productId);
+        int total = all.stream().mapToInt(ProductStockShard::getStock).sum();
+        if (total < quantity)
+            return false;
+
+        spread(all, total - quantity);
+        em.flush();
+        return true;
+    }
+
+    int available(Long productId) {
+        return em.createQuery("select coalesce(sum(s.stock), 0) from ProductStockShard s where s.productId = :productId",
+                Long.class)
+                .setParameter("productId", productId)
+                .getSingleResult()
+                .intValue();
+    }
+
+    void give(Long productId, int shards, int quantity) {
+        BitSet held = heldLocks(productId);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++)
+            if (lockable(held, (start + i) % shards)) {
+                add(productId, (start + i) % shards, quantity);
+                return;
+            }
+    }
+
+    void distribute(Long productId, int shards, int total) {
+        List<ProductStockShard> existing = lockAll(productId);
+        for (int shardNo = existing.size(); shardNo < shards; shardNo++) {
+            ProductStockShard shard = new ProductStockShard(productId, shardNo, 0);
+            em.persist(shard);
+            existing.add(shard);
+        }
+        for (ProductStockShard shard : existing.subList(shards, existing.size()))
+            em.remove(shard);
+
+        spread(existing.subList(0, shards), total);
+        em.flush();
+    }
+
+    int collect(Long productId) {
+        List<ProductStockShard> all = lockAll(productId);
+        int total = all.stream().mapToInt(ProductStockShard::getStock).sum();
+        all.forEach(em::remove);
+        em.flush();
+        return total;
+    }
+
+    private boolean add(Long productId, int shardNo, int delta) {
+        heldLocks(productId).set(shardNo);
+        return em.createQuery("""
+                update ProductStockShard s
+                set s.stock = s.stock + :delta
+                where s.productId = :productId and s.shardNo = :shardNo and s.stock + :delta >= 0
+                """)
+                .setParameter("productId", productId)
+                .setParameter("shardNo", shardNo)
+                .setParameter("delta", delta)
+                .executeUpdate() == 1;
+    }
+
+    private List<ProductStockShard> lockAll(Long productId) {
+        List<ProductStockShard> all = em.createQuery("""
+                select s from ProductStockShard s
+                where s.productId = :productId
+                order by s.shardNo
+                """, ProductStockShard.class)
+                .setParameter("productId", productId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        heldLocks(productId).set(0, all.size());
+        return all;
+    }
+
+    // a row this transaction already holds, or one above every row it holds
+    private static boolean lockable(BitSet held, int shardNo) {
+        return held.get(shardNo) || shardNo >= held.length();
+    }
+
+    // Shard rows of the product locked by the current transaction, keyed by its session so a REQUIRES_NEW
+    // transaction starts from its own
+    @SuppressWarnings("unchecked")
+    private BitSet heldLocks(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return new BitSet();
+
+        HeldLocksKey key = new HeldLocksKey(em.unwrap(Session.class));
+        Map<Long, BitSet> held = (Map<Long, BitSet>) TransactionSynchronizationManager.getResource(key);
+        if (held == null) {
+            held = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(key, held);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(key);
+                }
+            });
+        }
+        return held.computeIfAbsent(productId, id -> new BitSet());
+    }
+
+    private record HeldLocksKey(Session session) {
+    }
+
+    private static void spread(List<ProductStockShard> shards, int total) {
+        int base = total / shards.size();
+        int remainder = total % shards.size();
+        for (int i = 0; i < shards.size(); i++)
+            shards.get(i).setStock(base + (i < remainder ? 1 : 0));
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.shopbackend.demo.product;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+public record UpdateStockShardsRequest(
+        @Min(1) @Max(64) int shards) {
+}
@@ -1,24 +1,37 @@
 package com.example.shopbackend.demo.security;
 
-import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.stereotype.Service;
 
 import com.example.shopbackend.demo.common.BadCredentialsException;
 import com.example.shopbackend.demo.common.EmailAlreadyInUseException;
+import com.example.shopbackend.demo.common.InvalidRefreshTokenException;
+import com.example.shopbackend.demo.security.VerifiedTokenCache.VerifiedToken;
 import com.example.shopbackend.demo.user.User;
 import com.example.shopbackend.demo.user.UserRepository;
 
+import io.micrometer.common.lang.Nullable;
+
 @Service
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashing passwordHashing;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocations revocations;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtService jwtService) {
+    public AuthService(UserRepository userRepository, PasswordHashing passwordHashing, JwtService jwtService,
+            RefreshTokenService refreshTokenService, TokenRevocations revocations) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
+        this.revocations = revocations;
     }
 
     public void register(RegisterRequest req) {
@@ -26,19 +39,46 @@ public class AuthService {
             throw new EmailAlreadyInUseException(req.email());
         User user = new User(
                 req.email(),
-                passwordEncoder.encode(req.password()));
+                passwordHashing.encode(req.password()));
 
         userRepository.save(user);
     }
 
-    public String login(LoginRequest req) {
+    public TokenResponse login(LoginRequest req) {
         User user = userRepository.findByEmail(req.email())
                 .orElseThrow(() -> new BadCredentialsException());
 
-        if (!passwordEncoder.matches(req.password(), user.getPasswordHash()))
+        String hash = user.getPasswordHash();
+        if (!passwordHashing.matches(req.password(), hash))
             throw new BadCredentialsException();
 
-        return jwtService.generateToken(user);
+        if (passwordHashing.needsRehash(hash))
+            passwordHashing.rehash(req.password(),
+                    rehashed -> userRepository.replacePasswordHash(user.getId(), hash, rehashed));
+
+        return tokens(user, refreshTokenService.issue(user.getId()));
+    }
+
+    // No password check: the single-use refresh token stands in for it
+    public TokenResponse refresh(RefreshRequest req) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(req.refreshToken());
+        User user = userRepository.findById(rotation.userId())
+                .orElseThrow(() -> new InvalidRefreshTokenException());
+        return tokens(user, rotation.refreshToken());
+    }
+
+    public void logout(String accessToken, @Nullable String refreshToken) {
+        VerifiedToken verified = jwtService.verify(accessToken);
+        if (verified != null && verified.tokenId() != null)
+            revocations.revoke(verified.tokenId(),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(verified.expiresAt()), ZoneId.systemDefault()));
+        if (refreshToken != null && !refreshToken.isBlank())
+            refreshTokenService.revoke(refreshToken);
+    }
+
+    private TokenResponse tokens(User user, String refreshToken) {
+        return new TokenResponse(jwtService.generateToken(user), refreshToken,
+                TimeUnit.MINUTES.toSeconds(jwtService.getExpirationMinutes()));
     }
 
 }
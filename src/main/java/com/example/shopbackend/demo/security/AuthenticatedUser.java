@@ -0,0 +1,39 @@
+package com.example.shopbackend.demo.security;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.shopbackend.demo.user.Role;
+import com.example.shopbackend.demo.user.User;
+
+// Principal installed by JwtAuthFilter; everything it carries comes from the token, so no user lookup is needed
+public record AuthenticatedUser(long id, String email, Role role) implements Principal {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+    }
+
+    public static AuthenticatedUser current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user)
+            return user;
+        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public UsernamePasswordAuthenticationToken toAuthentication() {
+        return new UsernamePasswordAuthenticationToken(this, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+    }
+}
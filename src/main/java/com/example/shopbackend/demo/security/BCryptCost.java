@@ -0,0 +1,48 @@
+package com.example.shopbackend.demo.security;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+// BCrypt work factor used for new hashes; stored hashes with a lower factor are rehashed on the next login
+public record BCryptCost(int value) {
+
+    public static final int MIN = 4;
+    public static final int MAX = 31;
+
+    private static final Pattern HASH = Pattern.compile("^\\$2[abxy]?\\$(\\d\\d)\\$");
+    private static final int PROBE_COST = 6;
+    private static final int PROBE_RUNS = 5;
+
+    public BCryptCost {
+        if (value < MIN || value > MAX)
+            throw new IllegalArgumentException("BCrypt cost must be between " + MIN + " and " + MAX + ": " + value);
+    }
+
+    // Each extra cost step doubles the work, so timing a cheap probe is enough to pick the factor nearest the target
+    public static BCryptCost calibrate(Duration targetVerifyTime, int minCost, int maxCost) {
+        String salt = BCrypt.gensalt(PROBE_COST);
+        BCrypt.hashpw("calibration", salt);
+
+        long[] nanos = new long[PROBE_RUNS];
+        for (int i = 0; i < PROBE_RUNS; i++) {
+            long started = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+
+        double doublings = Math.log((double) targetVerifyTime.toNanos() / Math.max(1, nanos[PROBE_RUNS / 2])) / Math.log(2);
+        return new BCryptCost(Math.clamp(PROBE_COST + Math.round(doublings), minCost, maxCost));
+    }
+
+    // Only ever upward: nodes calibrated to different costs would otherwise keep rehashing each other's hashes.
+    // false for hashes that are not BCrypt, since those cannot be compared
+    public boolean exceeds(String hash) {
+        Matcher matcher = HASH.matcher(hash);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) < value;
+    }
+}
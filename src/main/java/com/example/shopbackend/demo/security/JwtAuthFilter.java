@@ -1,15 +1,14 @@
 package com.example.shopbackend.demo.security;
 
 import java.io.IOException;
-import java.util.List;
 
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.example.shopbackend.demo.security.VerifiedTokenCache.VerifiedToken;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,10 +17,14 @@ import jakarta.servlet.http.HttpServletResponse;
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
+
     private final JwtService jwtService;
+    private final TokenRevocations revocations;
 
-    public JwtAuthFilter(JwtService jwtService) {
+    public JwtAuthFilter(JwtService jwtService, TokenRevocations revocations) {
         this.jwtService = jwtService;
+        this.revocations = revocations;
     }
 
     @Override
@@ -34,23 +37,14 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         String token = auth.substring("Bearer ".length()).trim();
-        if (!jwtService.isValid(token)) {
+        VerifiedToken verified = jwtService.verify(token);
+        if (verified == null || revocations.isRevoked(verified.tokenId())) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String email = jwtService.extractEmail(token);
-
-        String role = jwtService.extractRole(token);
-
-        var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
-
-        var authentication = new UsernamePasswordAuthenticationToken(
-                email,
-                null,
-                authorities);
-
-        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        var authentication = verified.user().toAuthentication();
+        authentication.setDetails(DETAILS_SOURCE.buildDetails(request));
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         filterChain.doFilter(request, response);
@@ -4,28 +4,38 @@ import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.UUID;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.shopbackend.demo.security.VerifiedTokenCache.VerifiedToken;
+import com.example.shopbackend.demo.user.Role;
 import com.example.shopbackend.demo.user.User;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
 @Service
 public class JwtService {
     private final SecretKey key;
+    private final JwtParser parser;
     private final long expirationMinutes;
+    private final VerifiedTokenCache verifiedTokens;
 
     public JwtService(
             @Value("${app.jwt.secret}") String secret,
-            @Value("${app.jwt.expirationMinutes}") long expirationMinutes) {
+            @Value("${app.jwt.expirationMinutes}") long expirationMinutes,
+            VerifiedTokenCache verifiedTokens) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
         this.expirationMinutes = expirationMinutes;
+        this.verifiedTokens = verifiedTokens;
     }
 
     public String generateToken(User user) {
@@ -33,7 +43,9 @@ public class JwtService {
         Instant exp = now.plus(expirationMinutes, ChronoUnit.MINUTES);
 
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(user.getEmail())
+                .claim("uid", user.getId())
                 .claim("role", user.getRole().name())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(exp))
@@ -41,28 +53,31 @@ public class JwtService {
                 .compact();
     }
 
-    public String extractEmail(String token) {
-        return parseClaims(token).getSubject();
+    public long getExpirationMinutes() {
+        return expirationMinutes;
     }
 
-    public String extractRole(String token) {
-        return parseClaims(token).get("role", String.class);
+    // Checks the signature once per distinct token; null when the token is invalid, expired or lacks the user id
+    VerifiedToken verify(String token) {
+        return verifiedTokens.get(token, this::parse);
     }
 
-    public boolean isValid(String token) {
+    private VerifiedToken parse(String token) {
+        Claims claims;
         try {
-            parseClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
-    }
 
-    private Claims parseClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        // tokens issued before the id was embedded
+        Long userId = claims.get("uid", Long.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null)
+            return null;
+
+        long expiresAt = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+        return new VerifiedToken(new AuthenticatedUser(userId, claims.getSubject(), Role.valueOf(role)),
+                claims.getId(), expiresAt);
     }
 }
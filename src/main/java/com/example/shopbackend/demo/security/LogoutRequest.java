@@ -0,0 +1,6 @@
+package com.example.shopbackend.demo.security;
+
+import io.micrometer.common.lang.Nullable;
+
+public record LogoutRequest(@Nullable String refreshToken) {
+}
@@ -1,5 +1,8 @@
 package com.example.shopbackend.demo.security;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -8,9 +11,21 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class PasswordConfig {
 
+    // a fixed cost wins; 0 picks the cost whose verification takes closest to the target on this machine
+    @Bean
+    BCryptCost bcryptCost(
+            @Value("${app.auth.password.cost:0}") int cost,
+            @Value("${app.auth.password.target-verify-time:100ms}") Duration targetVerifyTime,
+            @Value("${app.auth.password.min-cost:10}") int minCost,
+            @Value("${app.auth.password.max-cost:14}") int maxCost) {
+        if (cost > 0)
+            return new BCryptCost(cost);
+        return BCryptCost.calibrate(targetVerifyTime, minCost, maxCost);
+    }
+
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(BCryptCost bcryptCost) {
+        return new BCryptPasswordEncoder(bcryptCost.value());
     }
 
 }
@@ -0,0 +1,156 @@
+package com.example.shopbackend.demo.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.example.shopbackend.demo.common.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Runs BCrypt on its own bounded pool so a login burst cannot occupy every request thread's CPU
+@Component
+public class PasswordHashing implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashing.class);
+
+    private final PasswordEncoder encoder;
+    private final BCryptCost cost;
+    private final ThreadPoolExecutor executor;
+    private final int capacity;
+    private final long maxQueueNanos;
+    private final long retryAfterSeconds;
+    private final Timer verifyTime;
+    private final Timer encodeTime;
+    private final Counter queueFull;
+    private final Counter queueTimeout;
+    private final Counter rehashed;
+
+    public PasswordHashing(PasswordEncoder encoder, BCryptCost cost, MeterRegistry meterRegistry,
+            @Value("${app.auth.hashing.threads:0}") int threads,
+            @Value("${app.auth.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.auth.hashing.max-queue-time:500ms}") Duration maxQueueTime,
+            @Value("${app.auth.hashing.retry-after:1s}") Duration retryAfter) {
+        this.encoder = encoder;
+        this.cost = cost;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.capacity = poolSize + queueCapacity;
+        this.maxQueueNanos = maxQueueTime.toNanos();
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hashing-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.password_hashing.queue.depth", executor.getQueue(), BlockingQueue::size)
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+        this.verifyTime = Timer.builder("auth.password_hashing")
+                .description("Time spent hashing passwords")
+                .tag("operation", "verify")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.encodeTime = Timer.builder("auth.password_hashing")
+                .description("Time spent hashing passwords")
+                .tag("operation", "encode")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.queueFull = Counter.builder("auth.password_hashing.rejected")
+                .description("Hashes refused because the hashing pool was saturated")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.queueTimeout = Counter.builder("auth.password_hashing.rejected")
+                .description("Hashes refused because the hashing pool was saturated")
+                .tag("reason", "queue_time")
+                .register(meterRegistry);
+        this.rehashed = Counter.builder("auth.password_hashing.rehashed")
+                .description("Stored hashes moved to the current cost after a successful login")
+                .register(meterRegistry);
+    }
+
+    public boolean matches(String rawPassword, String hash) {
+        return call(() -> verifyTime.record(() -> encoder.matches(rawPassword, hash)));
+    }
+
+    public String encode(String rawPassword) {
+        return call(() -> encodeTime.record(() -> encoder.encode(rawPassword)));
+    }
+
+    public boolean needsRehash(String hash) {
+        return cost.exceeds(hash);
+    }
+
+    // Best effort and off the request path: skipped when the pool is busy, the next login tries again
+    public void rehash(String rawPassword, Consumer<String> store) {
+        try {
+            executor.execute(() -> {
+                try {
+                    store.accept(encodeTime.record(() -> encoder.encode(rawPassword)));
+                    rehashed.increment();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to rehash password", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queueFull.increment();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T call(Callable<T> work) {
+        long enqueued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                // the caller has waited long enough; hashing now would only delay the requests behind it
+                if (System.nanoTime() - enqueued > maxQueueNanos)
+                    throw new QueueTimeout();
+                return work.call();
+            });
+        } catch (RejectedExecutionException e) {
+            queueFull.increment();
+            throw new PasswordHashingBusyException(capacity, retryAfterSeconds);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException(capacity, retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueueTimeout) {
+                queueTimeout.increment();
+                throw new PasswordHashingBusyException(capacity, retryAfterSeconds);
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class QueueTimeout extends RuntimeException {
+        QueueTimeout() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.shopbackend.demo.security;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.shopbackend.demo.common.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Per-client limits for login, registration and order creation; runs after JwtAuthFilter so users are keyed by id
+@Component
+public class RateLimitFilter extends OncePerRequestFilter implements DisposableBean {
+
+    private final boolean enabled;
+    private final List<Rule> rules;
+    private final TokenBuckets buckets;
+    private final ObjectMapper objectMapper;
+    private final List<IpAddressMatcher> trustedProxies;
+    private final ScheduledExecutorService sweeper;
+
+    public RateLimitFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${app.rate-limit.enabled:true}") boolean enabled,
+            @Value("${app.rate-limit.max-keys:100000}") int maxKeys,
+            @Value("${app.rate-limit.sweep-interval:1m}") Duration sweepInterval,
+            @Value("${app.rate-limit.trusted-proxies:}") List<String> trustedProxies,
+            @Value("${app.rate-limit.login.capacity:10}") int loginCapacity,
+            @Value("${app.rate-limit.login.period:1m}") Duration loginPeriod,
+            @Value("${app.rate-limit.register.capacity:5}") int registerCapacity,
+            @Value("${app.rate-limit.register.period:1m}") Duration registerPeriod,
+            @Value("${app.rate-limit.order-create.capacity:30}") int orderCreateCapacity,
+            @Value("${app.rate-limit.order-create.period:1m}") Duration orderCreatePeriod) {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+        this.buckets = new TokenBuckets(maxKeys);
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+        this.rules = List.of(
+                new Rule("login", "POST", "/auth/login", false, loginCapacity, loginPeriod, meterRegistry),
+                new Rule("register", "POST", "/auth/register", false, registerCapacity, registerPeriod, meterRegistry),
+                new Rule("order-create", "POST", "/orders", true, orderCreateCapacity, orderCreatePeriod,
+                        meterRegistry));
+
+        Gauge.builder("http.rate_limit.buckets", buckets, TokenBuckets::size)
+                .description("Client buckets currently tracked by the rate limiter")
+                .register(meterRegistry);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("rate-limit-sweeper").daemon().factory());
+        sweeper.scheduleWithFixedDelay(() -> buckets.evictIdle(System.nanoTime()), sweepInterval.toMillis(),
+                sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || rule(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Rule rule = rule(request);
+        long waitNanos = buckets.tryAcquire(new BucketKey(rule.name(), client(rule, request)), rule.capacity(),
+                rule.periodNanos(), System.nanoTime());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        rule.rejected().increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiError(
+                "RATE_LIMITED",
+                "Too many requests, please retry later",
+                Map.of("route", rule.name(),
+                        "limit", rule.capacity())));
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+
+    private Rule rule(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Rule rule : rules)
+            if (rule.method().equals(request.getMethod()) && rule.path().equals(path))
+                return rule;
+        return null;
+    }
+
+    private String client(Rule rule, HttpServletRequest request) {
+        if (rule.perUser()) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user)
+                return "user:" + user.id();
+        }
+        return "ip:" + clientAddress(request);
+    }
+
+    // Behind a trusted proxy the client is the last X-Forwarded-For hop no trusted proxy added; entries further
+    // left are whatever the client chose to send, so they are never used as the key
+    private String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!trusted(address))
+            return address;
+
+        List<String> forwarded = Collections.list(request.getHeaders("X-Forwarded-For"));
+        for (int i = forwarded.size() - 1; i >= 0; i--) {
+            String[] hops = forwarded.get(i).split(",");
+            for (int j = hops.length - 1; j >= 0; j--) {
+                String hop = hops[j].trim();
+                if (hop.isEmpty())
+                    continue;
+                address = hop;
+                if (!trusted(hop))
+                    return hop;
+            }
+        }
+        return address;
+    }
+
+    private boolean trusted(String address) {
+        try {
+            for (IpAddressMatcher proxy : trustedProxies)
+                if (proxy.matches(address))
+                    return true;
+        } catch (IllegalArgumentException e) {
+            // not an IP literal, so not one of our proxies
+        }
+        return false;
+    }
+
+    private record BucketKey(String rule, String client) {
+    }
+
+    private record Rule(String name, String method, String path, boolean perUser, int capacity, long periodNanos,
+            Counter rejected) {
+
+        Rule(String name, String method, String path, boolean perUser, int capacity, Duration period,
+                MeterRegistry meterRegistry) {
+            this(name, method, path, perUser, capacity, period.toNanos(), Counter.builder("http.rate_limit.rejected")
+                    .description("Requests answered 429 by the rate limiter")
+                    .tag("route", name)
+                    .register(meterRegistry));
+        }
+    }
+}
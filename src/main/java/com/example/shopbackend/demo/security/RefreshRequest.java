@@ -0,0 +1,6 @@
+package com.example.shopbackend.demo.security;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshRequest(@NotBlank String refreshToken) {
+}
@@ -0,0 +1,116 @@
+package com.example.shopbackend.demo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.common.InvalidRefreshTokenException;
+
+// Opaque, single-use refresh tokens. Presenting one that was already rotated revokes its whole family,
+// since either the client or whoever copied the token is replaying it.
+@Service
+public class RefreshTokenService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService purger;
+
+    public RefreshTokenService(RefreshTokenRepository repository, PlatformTransactionManager transactionManager,
+            @Value("${app.jwt.refresh.ttl:30d}") Duration ttl,
+            @Value("${app.jwt.refresh.purge-interval:1h}") Duration purgeInterval) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.purger = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("refresh-token-purger").daemon().factory());
+        purger.scheduleWithFixedDelay(this::purge, purgeInterval.toMillis(), purgeInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public String issue(long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    // Marks the token used and returns its successor in the same family
+    public Rotation rotate(String refreshToken) {
+        Rotation rotation = transactionTemplate.execute(status -> {
+            Optional<RefreshToken> found = repository.findByTokenHash(hash(refreshToken));
+            if (found.isEmpty())
+                return null;
+
+            RefreshToken current = found.get();
+            if (current.isRevoked() || current.getExpiresAt().isBefore(LocalDateTime.now()))
+                return null;
+            if (current.getUsedAt() != null) {
+                repository.revokeFamily(current.getFamilyId());
+                return null;
+            }
+
+            current.markUsed();
+            return new Rotation(current.getUserId(), issue(current.getUserId(), current.getFamilyId()));
+        });
+        if (rotation == null)
+            throw new InvalidRefreshTokenException();
+        return rotation;
+    }
+
+    public void revoke(String refreshToken) {
+        transactionTemplate.executeWithoutResult(status -> repository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> repository.revokeFamily(token.getFamilyId())));
+    }
+
+    @Override
+    public void destroy() {
+        purger.shutdownNow();
+    }
+
+    private String issue(long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        repository.save(new RefreshToken(userId, hash(token), familyId, LocalDateTime.now().plus(ttl)));
+        return token;
+    }
+
+    private void purge() {
+        try {
+            repository.deleteExpiredBefore(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge expired refresh tokens", e);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(long userId, String refreshToken) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.shopbackend.demo.security;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.transaction.Transactional;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    @Query("select new com.example.shopbackend.demo.security.RevokedTokenRow(t.tokenId, t.expiresAt) from RevokedToken t where t.revokedAt >= :since and t.expiresAt > :now")
+    List<RevokedTokenRow> findRevokedSince(LocalDateTime since, LocalDateTime now);
+
+    @Query("select new com.example.shopbackend.demo.security.RevokedTokenRow(t.tokenId, t.expiresAt) from RevokedToken t where t.expiresAt > :now")
+    List<RevokedTokenRow> findUnexpired(LocalDateTime now);
+
+    boolean existsByTokenId(String tokenId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :cutoff")
+    int deleteExpiredBefore(LocalDateTime cutoff);
+}
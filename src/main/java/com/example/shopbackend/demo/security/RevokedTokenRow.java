@@ -0,0 +1,6 @@
+package com.example.shopbackend.demo.security;
+
+import java.time.LocalDateTime;
+
+public record RevokedTokenRow(String tokenId, LocalDateTime expiresAt) {
+}
@@ -0,0 +1,69 @@
+package com.example.shopbackend.demo.security;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets kept as one timestamp each (GCRA): the instant the bucket will be full again, advanced with a CAS.
+// A bucket whose timestamp has passed is indistinguishable from a new one, so dropping it never changes a decision.
+final class TokenBuckets {
+
+    static final int STRIPES = 16;
+
+    private final ConcurrentHashMap<Object, AtomicLong>[] stripes;
+    private final int maxKeysPerStripe;
+
+    @SuppressWarnings("unchecked")
+    TokenBuckets(int maxKeys) {
+        this.stripes = new ConcurrentHashMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new ConcurrentHashMap<>();
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+    }
+
+    // 0 when a token was taken, otherwise the nanos until the next one; capacity tokens refill evenly over the period
+    long tryAcquire(Object key, int capacity, long periodNanos, long now) {
+        long interval = periodNanos / capacity;
+        long burst = interval * capacity;
+
+        ConcurrentHashMap<Object, AtomicLong> stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        AtomicLong fullAt = stripe.get(key);
+        if (fullAt == null) {
+            if (stripe.size() >= maxKeysPerStripe)
+                makeRoom(stripe, now);
+            fullAt = stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + interval;
+            long wait = next - now - burst;
+            if (wait > 0)
+                return wait;
+            if (fullAt.compareAndSet(current, next))
+                return 0;
+        }
+    }
+
+    void evictIdle(long now) {
+        for (ConcurrentHashMap<Object, AtomicLong> stripe : stripes)
+            stripe.values().removeIf(fullAt -> now - fullAt.get() >= 0);
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrentHashMap<Object, AtomicLong> stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    // Idle buckets go first; if every key is still active the stripe drops an arbitrary one to stay bounded
+    private void makeRoom(ConcurrentHashMap<Object, AtomicLong> stripe, long now) {
+        stripe.values().removeIf(fullAt -> now - fullAt.get() >= 0);
+        Iterator<Object> keys = stripe.keySet().iterator();
+        while (stripe.size() >= maxKeysPerStripe && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
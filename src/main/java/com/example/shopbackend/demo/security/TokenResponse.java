@@ -1,5 +1,6 @@
 package com.example.shopbackend.demo.security;
 
-public record TokenResponse(String token) {
+// expiresIn is the access token lifetime in seconds; renew it with the refresh token before then
+public record TokenResponse(String token, String refreshToken, long expiresIn) {
 
 }
@@ -0,0 +1,136 @@
+package com.example.shopbackend.demo.security;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.common.lang.Nullable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Revoked access token ids mirrored from revoked_token. The Bloom filter answers the common "not revoked" case
+// without touching the exact set, which only holds ids whose tokens have not expired yet.
+@Component
+public class TokenRevocations implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocations.class);
+
+    private final RevokedTokenRepository repository;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final Duration clockSkew;
+    @Nullable
+    private final ScheduledExecutorService syncer;
+    private volatile Snapshot snapshot;
+    private volatile LocalDateTime syncedFrom;
+
+    TokenRevocations(RevokedTokenRepository repository, MeterRegistry meterRegistry,
+            @Value("${app.jwt.revocation.expected-entries:100000}") int expectedEntries,
+            @Value("${app.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.jwt.revocation.background-sync:true}") boolean backgroundSync,
+            @Value("${app.jwt.revocation.sync-interval:5s}") Duration syncInterval,
+            @Value("${app.jwt.revocation.rebuild-interval:10m}") Duration rebuildInterval,
+            @Value("${app.jwt.revocation.clock-skew:1m}") Duration clockSkew) {
+        this.repository = repository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.clockSkew = clockSkew;
+        this.snapshot = new Snapshot(new BloomFilter(expectedEntries, falsePositiveRate), new ConcurrentHashMap<>());
+        this.syncedFrom = LocalDateTime.now();
+
+        Gauge.builder("auth.revoked_tokens", this, revocations -> revocations.snapshot.exact().size())
+                .description("Revoked access tokens that have not expired yet")
+                .register(meterRegistry);
+
+        // without it this node only sees its own revocations until sync() or rebuild() is called
+        if (!backgroundSync) {
+            this.syncer = null;
+            return;
+        }
+        this.syncer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("token-revocation-sync").daemon().factory());
+        syncer.scheduleWithFixedDelay(this::syncQuietly, syncInterval.toMillis(), syncInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        syncer.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    boolean isRevoked(String tokenId) {
+        if (tokenId == null)
+            return false;
+        Snapshot current = snapshot;
+        return current.bloom().mightContain(tokenId) && current.exact().containsKey(tokenId);
+    }
+
+    // Applies locally at once; other nodes pick the row up on their next sync
+    void revoke(String tokenId, LocalDateTime expiresAt) {
+        try {
+            repository.save(new RevokedToken(tokenId, expiresAt));
+        } catch (DataIntegrityViolationException e) {
+            // already revoked, by a repeated logout or on another node
+        }
+        snapshot.add(tokenId, expiresAt);
+    }
+
+    // Re-reads a clock-skew margin before the last sync, so rows committed late by other nodes are not skipped
+    void sync() {
+        LocalDateTime started = LocalDateTime.now();
+        Snapshot current = snapshot;
+        for (RevokedTokenRow row : repository.findRevokedSince(syncedFrom.minus(clockSkew), started))
+            current.add(row.tokenId(), row.expiresAt());
+        syncedFrom = started;
+    }
+
+    // Starts from an empty filter so expired ids stop costing bits and memory
+    void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        repository.deleteExpiredBefore(now);
+        List<RevokedTokenRow> rows = repository.findUnexpired(now);
+
+        Snapshot fresh = new Snapshot(new BloomFilter(Math.max(expectedEntries, rows.size() * 2), falsePositiveRate),
+                new ConcurrentHashMap<>());
+        rows.forEach(row -> fresh.add(row.tokenId(), row.expiresAt()));
+        snapshot = fresh;
+        syncedFrom = now;
+    }
+
+    @Override
+    public void destroy() {
+        if (syncer != null)
+            syncer.shutdownNow();
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Failed to sync revoked tokens", e);
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild revoked tokens", e);
+        }
+    }
+
+    private record Snapshot(BloomFilter bloom, Map<String, LocalDateTime> exact) {
+        void add(String tokenId, LocalDateTime expiresAt) {
+            exact.put(tokenId, expiresAt);
+            bloom.add(tokenId);
+        }
+    }
+}
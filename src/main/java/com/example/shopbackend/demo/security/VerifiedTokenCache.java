@@ -0,0 +1,91 @@
+package com.example.shopbackend.demo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Tokens whose signature was already checked, keyed by a digest of the token and kept until it expires
+@Component
+class VerifiedTokenCache {
+
+    private final Map<String, VerifiedToken> entries;
+    private final boolean enabled;
+    private final Counter hits;
+    private final Counter misses;
+
+    VerifiedTokenCache(MeterRegistry meterRegistry,
+            @Value("${app.jwt.cache.max-entries:10000}") int maxEntries) {
+        this.enabled = maxEntries > 0;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("auth.token_cache")
+                .description("Bearer token verifications by outcome")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("auth.token_cache")
+                .description("Bearer token verifications by outcome")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.token_cache.size", entries, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        });
+    }
+
+    // null when the verifier rejects the token or it has expired since it was cached
+    VerifiedToken get(String token, Function<String, VerifiedToken> verifier) {
+        if (!enabled)
+            return verifier.apply(token);
+
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            VerifiedToken cached = entries.get(key);
+            if (cached != null) {
+                if (now < cached.expiresAt()) {
+                    hits.increment();
+                    return cached;
+                }
+                entries.remove(key);
+                return null;
+            }
+        }
+
+        misses.increment();
+        VerifiedToken verified = verifier.apply(token);
+        if (verified == null)
+            return null;
+        synchronized (entries) {
+            entries.put(key, verified);
+        }
+        return verified;
+    }
+
+    private static String digest(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // tokenId is null for tokens issued before ids were embedded
+    record VerifiedToken(AuthenticatedUser user, String tokenId, long expiresAt) {
+    }
+}
@@ -0,0 +1,78 @@
+-- Schema as ddl-auto: update left it at the last release before migrations took over; existing databases are
+-- baselined at this version
+
+create table order_item_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into order_item_seq values ( 1 );
+
+create table order_item (
+    quantity integer not null,
+    unit_price integer not null,
+    id bigint not null,
+    order_id bigint not null,
+    product_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table orders (
+    created_at datetime(6),
+    id bigint not null,
+    user_id bigint not null,
+    status enum ('CANCELLED','CREATED','PAID','SHIPPED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table orders_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into orders_seq values ( 1 );
+
+create table product (
+    price integer not null,
+    stock integer not null,
+    id bigint not null,
+    image_key varchar(500),
+    name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table product_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into product_seq values ( 1 );
+
+create table user (
+    id bigint not null,
+    email varchar(255) not null,
+    password_hash varchar(255) not null,
+    role enum ('ADMIN','USER'),
+    primary key (id)
+) engine=InnoDB;
+
+create table user_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into user_seq values ( 1 );
+
+alter table user
+   add constraint UKob8kqyqqgmefl0aco34akdtpe unique (email);
+
+alter table order_item
+   add constraint FKt4dc2r9nbvbujrljv3e23iibt
+   foreign key (order_id)
+   references orders (id);
+
+alter table order_item
+   add constraint FK551losx9j75ss5d6bfsqvijna
+   foreign key (product_id)
+   references product (id);
+
+alter table orders
+   add constraint FKel9kyl84ego2otj2accfd8mr7
+   foreign key (user_id)
+   references user (id);
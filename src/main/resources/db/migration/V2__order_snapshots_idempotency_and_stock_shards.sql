@@ -0,0 +1,77 @@
+-- Tables and columns the order and stock changes added on top of V1. Orders and items written before them get
+-- their totals and product snapshots filled here, then those columns become required so reads never have to
+-- recompute them or join product.
+
+-- 0 = stock lives in product.stock, otherwise in that many product_stock_shard rows
+alter table product add column stock_shards integer not null default 0;
+
+create table product_stock_shard (
+    shard_no integer not null,
+    stock integer not null,
+    id bigint not null,
+    product_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table product_stock_shard_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into product_stock_shard_seq values ( 1 );
+
+alter table product_stock_shard
+   add constraint UK6h1kpc5nojlkc5n31fqyst7j5 unique (product_id, shard_no);
+
+create table order_idempotency_key (
+    created_at datetime(6) not null,
+    id bigint not null,
+    order_id bigint not null,
+    user_id bigint not null,
+    request_fingerprint varchar(64) not null,
+    idempotency_key varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table order_idempotency_key_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into order_idempotency_key_seq values ( 1 );
+
+create index idx_order_idempotency_key_created_at
+   on order_idempotency_key (created_at);
+
+alter table order_idempotency_key
+   add constraint UK8uif1v98uasyamyqwaiujg54j unique (user_id, idempotency_key);
+
+-- keyset pagination for order search
+create index idx_orders_created_at_id
+   on orders (created_at, id);
+
+create index idx_orders_status_created_at_id
+   on orders (status, created_at, id);
+
+create index idx_orders_user_created_at_id
+   on orders (user_id, created_at, id);
+
+alter table orders add column item_count integer;
+
+alter table orders add column total_value bigint;
+
+alter table order_item add column image_key varchar(500);
+
+alter table order_item add column product_name varchar(255);
+
+update orders o
+set total_value = (select coalesce(sum(i.unit_price * i.quantity), 0) from order_item i where i.order_id = o.id),
+    item_count = (select count(*) from order_item i where i.order_id = o.id);
+
+update order_item i
+set product_name = coalesce((select p.name from product p where p.id = i.product_id), ''),
+    image_key = (select p.image_key from product p where p.id = i.product_id);
+
+alter table orders modify item_count integer not null;
+
+alter table orders modify total_value bigint not null;
+
+alter table order_item modify product_name varchar(255) not null;
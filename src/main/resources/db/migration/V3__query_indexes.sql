@@ -0,0 +1,12 @@
+-- Indexes for the repository queries that V1 and V2 left to table scans or to MySQL's implicit foreign key
+-- indexes. MySQL drops an implicit foreign key index on its own once an index below can enforce that key.
+
+-- ProductRepository.findByPriceBetween
+create index idx_product_price on product (price, id);
+
+-- Order detail and page loads fetch items by order_id; the restock sum on cancel groups them by product
+-- and reads quantity, which this index covers without touching the rows
+create index idx_order_item_order_product_quantity on order_item (order_id, product_id, quantity);
+
+-- Product deletes and stock audits look items up by product_id
+create index idx_order_item_product_id on order_item (product_id);
@@ -0,0 +1,51 @@
+-- Refresh tokens (stored as SHA-256 hashes) and revoked access token ids for JwtAuthFilter
+
+create table refresh_token (
+    revoked bit not null,
+    created_at datetime(6) not null,
+    expires_at datetime(6) not null,
+    id bigint not null,
+    used_at datetime(6),
+    user_id bigint not null,
+    family_id varchar(36) not null,
+    token_hash varchar(64) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table refresh_token_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into refresh_token_seq values ( 1 );
+
+create table revoked_token (
+    expires_at datetime(6) not null,
+    id bigint not null,
+    revoked_at datetime(6) not null,
+    token_id varchar(36) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table revoked_token_seq (
+    next_val bigint
+) engine=InnoDB;
+
+insert into revoked_token_seq values ( 1 );
+
+create index idx_refresh_token_family_id
+   on refresh_token (family_id);
+
+create index idx_refresh_token_expires_at
+   on refresh_token (expires_at);
+
+create index idx_revoked_token_revoked_at
+   on revoked_token (revoked_at);
+
+create index idx_revoked_token_expires_at
+   on revoked_token (expires_at);
+
+alter table refresh_token
+   add constraint uk_refresh_token_token_hash unique (token_hash);
+
+alter table revoked_token
+   add constraint uk_revoked_token_token_id unique (token_id);
@@ -0,0 +1,225 @@
+package com.example.shopbackend.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+// Runs db/migration on H2 in MySQL mode and writes before/after query plans to target/explain-report.md
+public class SchemaMigrationExplainTest {
+
+    static final Path REPORT = Path.of("target", "explain-report.md");
+    static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    // repository query -> the SQL Hibernate issues for it
+    static final Map<String, Query> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("ProductRepository.findByPriceBetween", new Query(
+                "select * from product where price between 100 and 120"));
+        QUERIES.put("OrderService.search by status", new Query(
+                "select * from orders where status = 'PAID' order by created_at desc, id desc limit 21"));
+        QUERIES.put("OrderService.search by user", new Query(
+                "select * from orders where user_id = 7 order by created_at desc, id desc limit 21"));
+        QUERIES.put("OrderService.search by created_at range", new Query(
+                "select * from orders where created_at >= timestamp '2025-01-02 00:00:00'"
+                        + " and created_at <= timestamp '2025-01-03 00:00:00' order by created_at desc, id desc limit 21"));
+        QUERIES.put("OrderRepository.findWithItemsByIdIn (items)", new Query(
+                "select * from order_item where order_id in (10, 11, 12)"));
+        QUERIES.put("OrderRepository.sumQuantitiesByProduct", new Query(
+                "select product_id, sum(quantity) from order_item where order_id in (10, 11, 12) group by product_id"));
+        QUERIES.put("order_item by product_id", new Query(
+                "select id from order_item where product_id = 42"));
+        QUERIES.put("OrderIdempotencyKeyRepository.deleteCreatedBefore", new Query(
+                "select id from order_idempotency_key where created_at < timestamp '2025-01-02 00:00:00'"));
+    }
+
+    String url;
+
+    @BeforeEach
+    void setUp() {
+        url = "jdbc:h2:mem:migrations-" + System.nanoTime()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("shutdown");
+        }
+    }
+
+    @Test
+    void migrate_addsIndexesUsedByRepositoryQueries() throws Exception {
+        Flyway.configure().dataSource(url, "sa", "").target("2").load().migrate();
+        seed();
+        Map<String, String> before = explainAll();
+
+        Flyway flyway = Flyway.configure().dataSource(url, "sa", "").load();
+        flyway.migrate();
+        Map<String, String> after = explainAll();
+
+        writeReport(before, after);
+        assertEquals("4", flyway.info().current().getVersion().getVersion());
+        assertTrue(before.get("ProductRepository.findByPriceBetween").contains("tableScan"));
+        QUERIES.keySet().forEach(name -> assertFalse(after.get(name).contains("tableScan"),
+                name + " still scans the table:\n" + after.get(name)));
+    }
+
+    // A database ddl-auto created before migrations existed: the V1 schema with data but no schema history
+    @Test
+    void migrate_existingSchema_baselinesAndUpgradesRows() throws Exception {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V1__baseline_schema.sql"));
+            statement.execute("insert into user (id, email, password_hash, role) values (1, 'a@example.com', 'hash', 'USER')");
+            statement.execute("insert into product (id, name, price, stock, image_key)"
+                    + " values (1, 'Shirt', 199, 10, 'shirt.png'), (2, 'Hat', 250, 10, null)");
+            statement.execute("insert into orders (id, created_at, status, user_id) values"
+                    + " (1, current_timestamp, 'CREATED', 1), (2, current_timestamp, 'CREATED', 1)");
+            statement.execute("insert into order_item (id, order_id, product_id, quantity, unit_price) values"
+                    + " (1, 1, 1, 3, 199), (2, 1, 2, 2, 250)");
+        }
+
+        Flyway flyway = Flyway.configure().dataSource(url, "sa", "")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        flyway.migrate();
+
+        assertEquals("4", flyway.info().current().getVersion().getVersion());
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("select stock, stock_shards from product where id = 1")) {
+                rs.next();
+                assertEquals(10, rs.getInt("stock"));
+                assertEquals(0, rs.getInt("stock_shards"));
+            }
+            try (ResultSet rs = statement.executeQuery("select id, total_value, item_count from orders order by id")) {
+                rs.next();
+                assertEquals(199 * 3 + 250 * 2, rs.getLong("total_value"));
+                assertEquals(2, rs.getInt("item_count"));
+                rs.next();
+                assertEquals(0, rs.getLong("total_value"));
+                assertEquals(0, rs.getInt("item_count"));
+            }
+            try (ResultSet rs = statement.executeQuery("select product_name, image_key from order_item order by id")) {
+                rs.next();
+                assertEquals("Shirt", rs.getString("product_name"));
+                assertEquals("shirt.png", rs.getString("image_key"));
+                rs.next();
+                assertEquals("Hat", rs.getString("product_name"));
+            }
+            assertThrows(SQLException.class, () -> statement.execute(
+                    "insert into orders (id, created_at, status, user_id) values (3, current_timestamp, 'CREATED', 1)"));
+        }
+    }
+
+    private void seed() throws SQLException {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            batch(connection, "insert into user (id, email, password_hash, role) values (?, ?, 'hash', 'USER')",
+                    50, (ps, i) -> {
+                        ps.setLong(1, i);
+                        ps.setString(2, "user" + i + "@example.com");
+                    });
+            batch(connection, "insert into product (id, name, price, stock, stock_shards) values (?, ?, ?, 100, 0)",
+                    2_000, (ps, i) -> {
+                        ps.setLong(1, i);
+                        ps.setString(2, "Product " + i);
+                        ps.setInt(3, 1 + i % 1_000);
+                    });
+            batch(connection, "insert into orders (id, created_at, status, user_id, total_value, item_count)"
+                    + " values (?, ?, ?, ?, 0, 3)", 10_000, (ps, i) -> {
+                        ps.setLong(1, i);
+                        ps.setTimestamp(2, Timestamp.valueOf(START.plusMinutes(i)));
+                        ps.setString(3, List.of("CREATED", "PAID", "SHIPPED", "CANCELLED").get(i % 4));
+                        ps.setLong(4, 1 + i % 50);
+                    });
+            batch(connection, "insert into order_item (id, order_id, product_id, quantity, unit_price, product_name)"
+                    + " values (?, ?, ?, 1, 10, 'Product')", 30_000, (ps, i) -> {
+                        ps.setLong(1, i);
+                        ps.setLong(2, 1 + (i - 1) / 3);
+                        ps.setLong(3, 1 + (i * 7L) % 2_000);
+                    });
+            batch(connection, "insert into order_idempotency_key (id, user_id, idempotency_key, request_fingerprint,"
+                    + " order_id, created_at) values (?, 1, ?, 'f', 1, ?)", 5_000, (ps, i) -> {
+                        ps.setLong(1, i);
+                        ps.setString(2, "key-" + i);
+                        ps.setTimestamp(3, Timestamp.valueOf(START.plusMinutes(i)));
+                    });
+            connection.commit();
+        }
+    }
+
+    private Map<String, String> explainAll() throws SQLException {
+        Map<String, String> plans = new LinkedHashMap<>();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("analyze");
+            for (Map.Entry<String, Query> query : QUERIES.entrySet())
+                try (ResultSet rs = statement.executeQuery("explain " + query.getValue().sql())) {
+                    rs.next();
+                    plans.put(query.getKey(), rs.getString(1));
+                }
+        }
+        return plans;
+    }
+
+    private void writeReport(Map<String, String> before, Map<String, String> after) throws IOException {
+        StringBuilder report = new StringBuilder("# Query plans before and after V3__query_indexes\n\n")
+                .append("H2 in MySQL mode, 2 000 products, 10 000 orders, 30 000 order items.\n")
+                .append("H2 picks among equally cheap indexes differently from MySQL; run the same EXPLAINs there for production plans.\n");
+        QUERIES.forEach((name, query) -> report
+                .append("\n## ").append(name).append("\n\n")
+                .append("```sql\n").append(query.sql()).append("\n```\n\n")
+                .append("Before:\n\n```\n").append(before.get(name)).append("\n```\n\n")
+                .append("After:\n\n```\n").append(after.get(name)).append("\n```\n"));
+
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, report);
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+
+    private static void batch(Connection connection, String sql, int rows, Binder binder) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= rows; i++) {
+                binder.bind(ps, i);
+                ps.addBatch();
+                if (i % 1_000 == 0)
+                    ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement ps, int i) throws SQLException;
+    }
+
+    record Query(String sql) {
+    }
+}
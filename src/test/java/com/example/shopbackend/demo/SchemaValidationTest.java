@@ -0,0 +1,26 @@
+package com.example.shopbackend.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Boots the way production does: Flyway builds the schema and Hibernate only validates it against the entities.
+// H2 in MySQL mode with the MySQL dialect, so sequences are the tables the migrations create.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:validate;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate" })
+public class SchemaValidationTest {
+
+    @Autowired
+    Flyway flyway;
+
+    @Test
+    void migratedSchema_matchesEntities() {
+        assertEquals("4", flyway.info().current().getVersion().getVersion());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.shopbackend.demo.common;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class AcceptEncodingTest {
+
+    @Test
+    void acceptsGzip_listedOrWildcard() {
+        assertTrue(AcceptEncoding.acceptsGzip("gzip, deflate, br"));
+        assertTrue(AcceptEncoding.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(AcceptEncoding.acceptsGzip("*"));
+    }
+
+    @Test
+    void acceptsGzip_absentOrRefused() {
+        assertFalse(AcceptEncoding.acceptsGzip(null));
+        assertFalse(AcceptEncoding.acceptsGzip("identity"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(AcceptEncoding.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    void acceptsGzip_explicitEntryWinsOverWildcard() {
+        assertTrue(AcceptEncoding.acceptsGzip("*;q=0, gzip"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0, *"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.shopbackend.demo.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LockConflictRetryTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    LockConflictRetry retry = new LockConflictRetry(3, Duration.ofMillis(1), Duration.ofMillis(2), registry);
+
+    @Test
+    void execute_transientConflict_retriesUntilSuccess() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retry.execute("test", () -> {
+            if (calls.incrementAndGet() < 3)
+                throw new CannotAcquireLockException("deadlock", new SQLException("deadlock", "40001", 1213));
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, registry.get("lock.retry").tag("reason", "deadlock").counter().count());
+    }
+
+    @Test
+    void execute_persistentConflict_givesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(CannotAcquireLockException.class, () -> retry.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new CannotAcquireLockException("timeout", new SQLException("timeout", "HY000", 1205));
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1, registry.get("lock.retry.exhausted").tag("reason", "lock_timeout").counter().count());
+    }
+
+    @Test
+    void execute_otherFailure_isNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(NotFoundException.class, () -> retry.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new NotFoundException("Order", 1L);
+        }));
+
+        assertEquals(1, calls.get());
+        assertNull(registry.find("lock.retry").counter());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.shopbackend.demo.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.common.InvalidStatusException;
+import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.product.Product;
+import com.example.shopbackend.demo.product.ProductRepository;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+
+import jakarta.transaction.Transactional;
+
+@SpringBootTest(properties = "app.orders.bulk.chunk-size=2")
+@Transactional
+public class OrderBulkStatusServiceTest {
+
+    @Autowired
+    OrderBulkStatusService bulkStatusService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    List<Long> orderIds = new ArrayList<>();
+    Long productId;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User("bulk-status@example.com", "hash"));
+        SecurityContextHolder.getContext().setAuthentication(
+                AuthenticatedUser.of(user).toAuthentication());
+        Product product = productRepository.save(new Product("Shirt", 10, 100));
+        productId = product.getId();
+        CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 1)));
+        for (int i = 0; i < 5; i++)
+            orderIds.add(orderService.create(request).getId());
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void updateStatus_mixedOrders_reportsOutcomePerId() {
+        orderService.updateStatus(orderIds.get(0), new UpdateOrderStatusRequest("CANCELLED"));
+        Long missing = orderIds.get(4) + 1000;
+        List<Long> ids = new ArrayList<>(orderIds);
+        ids.add(missing);
+
+        BulkStatusResultDto result = bulkStatusService.updateStatus(ids, "paid");
+
+        assertEquals(Status.PAID, result.status());
+        assertEquals(4, result.updated());
+        assertEquals(1, result.notFound());
+        assertEquals(1, result.invalidTransition());
+        assertEquals(new BulkStatusOutcome(orderIds.get(0), BulkStatusOutcome.Result.INVALID_TRANSITION,
+                Status.CANCELLED), result.outcomes().get(0));
+        assertEquals(Status.PAID, orderRepository.findById(orderIds.get(1)).orElseThrow().getStatus());
+        assertEquals(Status.CANCELLED, orderRepository.findById(orderIds.get(0)).orElseThrow().getStatus());
+    }
+
+    @Test
+    void cancel_restocksEveryCancelledOrderOnce() {
+        bulkStatusService.updateStatus(List.of(orderIds.get(0)), "PAID");
+
+        BulkStatusResultDto result = bulkStatusService.cancel(orderIds);
+
+        assertEquals(4, result.updated());
+        assertEquals(1, result.invalidTransition());
+        assertEquals(99, productRepository.findById(productId).orElseThrow().getStock());
+        assertEquals(Status.CANCELLED, orderRepository.findById(orderIds.get(4)).orElseThrow().getStatus());
+    }
+
+    @Test
+    void updateStatus_unknownStatus_throws() {
+        assertThrows(InvalidStatusException.class, () -> bulkStatusService.updateStatus(orderIds, "LOST"));
+    }
+
+    @Test
+    void importPaymentsCsv_withHeader_marksOrdersPaid() {
+        String csv = """
+                payment_ref,order_id,amount
+                p-1,%d,10
+                p-2,%d,10
+                p-3,not-a-number,10
+
+                p-4,%d,10
+                p-5,%d,10
+                """.formatted(orderIds.get(0), orderIds.get(1), orderIds.get(2), orderIds.get(1));
+
+        PaymentImportResultDto result = bulkStatusService.importPaymentsCsv(stream(csv));
+
+        assertEquals(7, result.lines());
+        assertEquals(3, result.updated());
+        assertEquals(1, result.invalidTransition());
+        assertEquals(1, result.malformed());
+        assertEquals(new PaymentImportProblem(4, null, "invalid order id 'not-a-number'"), result.problems().get(0));
+        assertEquals(Status.PAID, orderRepository.findById(orderIds.get(2)).orElseThrow().getStatus());
+        assertEquals(Status.CREATED, orderRepository.findById(orderIds.get(3)).orElseThrow().getStatus());
+    }
+
+    @Test
+    void importPaymentsNdjson_marksOrdersPaid() {
+        String ndjson = """
+                {"orderId": %d, "amount": 10}
+                {"order_id": "%d"}
+                {"amount": 10}
+                """.formatted(orderIds.get(3), orderIds.get(4));
+
+        PaymentImportResultDto result = bulkStatusService.importPaymentsNdjson(stream(ndjson));
+
+        assertEquals(2, result.updated());
+        assertEquals(1, result.malformed());
+        assertEquals(Status.PAID, orderRepository.findById(orderIds.get(4)).orElseThrow().getStatus());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -15,7 +15,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
-@AutoConfigureMockMvc
+@AutoConfigureMockMvc(addFilters = false)
 public class OrderControllerIT {
 
     @Autowired
@@ -42,14 +42,14 @@ public class OrderControllerIT {
     }
 
     @Test
-    void getByStatus_invalidStatus_shouldReturn400() throws Exception {
+    void search_invalidStatus_shouldReturn400() throws Exception {
         mockMvc.perform(get("/orders")
                 .param("status", "CREATE"))
                 .andExpect(status().isBadRequest());
     }
 
     @Test
-    void getCreatedBetween_invalidDate_shouldReturn400() throws Exception {
+    void search_invalidDate_shouldReturn400() throws Exception {
         mockMvc.perform(get("/orders")
                 .param("from", "2025-10-10T10:20:11")
                 .param("to", "2025-11-11T11:"))
@@ -57,13 +57,20 @@ public class OrderControllerIT {
     }
 
     @Test
-    void getCreatedBetween_fromAfterTo_shouldReturn400() throws Exception {
+    void search_fromAfterTo_shouldReturn400() throws Exception {
         mockMvc.perform(get("/orders")
                 .param("from", "2025-10-10T10:20:11")
                 .param("to", "2025-09-11T11:11:11"))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void search_malformedCursor_shouldReturn400() throws Exception {
+        mockMvc.perform(get("/orders")
+                .param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getOrderSummary_missingId_shouldReturn404() throws Exception {
         mockMvc.perform(get("/orders/1/summary"))
@@ -1,29 +1,49 @@
 package com.example.shopbackend.demo.order;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.example.shopbackend.demo.common.OrderIntakeFullException;
 import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.security.JwtService;
+import com.example.shopbackend.demo.security.RateLimitFilter;
+import com.example.shopbackend.demo.security.TokenRevocations;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.springframework.http.MediaType;
 
 @WebMvcTest(OrderController.class)
+@AutoConfigureMockMvc(addFilters = false)
 public class OrderControllerTest {
     @Autowired
     MockMvc mockMvc;
@@ -33,22 +53,123 @@ public class OrderControllerTest {
     @MockitoBean
     OrderService orderService;
 
+    @MockitoBean
+    OrderIntake orderIntake;
+
+    @MockitoBean
+    OrderBulkStatusService orderBulkStatusService;
+
+    @MockitoBean
+    OrderExportService orderExportService;
+
+    @MockitoBean
+    JwtService jwtService;
+
+    @MockitoBean
+    RateLimitFilter rateLimitFilter;
+
+    @MockitoBean
+    TokenRevocations tokenRevocations;
+
+    @Test
+    void export_gzipAccepted_shouldStreamCompressedBody() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(orderExportService).export(any(), eq(ExportFormat.NDJSON), any());
+
+        MvcResult started = mockMvc.perform(get("/orders/export")
+                .header("Accept-Encoding", "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("{\"id\":1}\n",
+                new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_gzipRefused_shouldStreamPlainBody() throws Exception {
+        MvcResult started = mockMvc.perform(get("/orders/export")
+                .header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+    }
+
+    @Test
+    void export_unknownFormat_shouldReturn400() throws Exception {
+        mockMvc.perform(get("/orders/export")
+                .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getAll_shouldReturn200() throws Exception {
-        when(orderService.getAll()).thenReturn(List.of());
+        when(orderService.search(any(OrderSearchCriteria.class), any(), anyInt()))
+                .thenReturn(new OrderPage(List.of(), null));
 
         mockMvc.perform(get("/orders"))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void search_combinedFilters_shouldReturn200() throws Exception {
+        when(orderService.search(
+                new OrderSearchCriteria(Status.PAID, LocalDateTime.parse("2025-10-10T10:20:11"), null, 7L),
+                "abc", 5))
+                .thenReturn(new OrderPage(List.of(), null));
+
+        mockMvc.perform(get("/orders")
+                .param("status", "paid")
+                .param("from", "2025-10-10T10:20:11")
+                .param("userId", "7")
+                .param("cursor", "abc")
+                .param("size", "5"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getMine_shouldReturn200() throws Exception {
+        when(orderService.getMine(null, OrderService.DEFAULT_PAGE_SIZE)).thenReturn(new OrderPage(List.of(), null));
+
+        mockMvc.perform(get("/orders/mine"))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void getById_existingId_shouldReturn200() throws Exception {
-        Order order = mock(Order.class);
-        when(order.getId()).thenReturn(1L);
-        when(orderService.getById(1L)).thenReturn(order);
+        when(orderService.getView(1L)).thenReturn(view(Status.CREATED));
 
         mockMvc.perform(get("/orders/1"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-CREATED\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+    }
+
+    @Test
+    void getById_terminalOrder_shouldBeCacheableForever() throws Exception {
+        when(orderService.getView(1L)).thenReturn(view(Status.SHIPPED));
+
+        mockMvc.perform(get("/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, private, immutable"));
+    }
+
+    @Test
+    void getById_matchingIfNoneMatch_shouldReturn304() throws Exception {
+        when(orderService.getView(1L)).thenReturn(view(Status.CANCELLED));
+
+        mockMvc.perform(get("/orders/1/summary")
+                .header("If-None-Match", "\"1-CANCELLED\""))
+                .andExpect(status().isNotModified());
     }
 
     @Test
@@ -59,9 +180,7 @@ public class OrderControllerTest {
 
     @Test
     void getOrderItems_existingId_shouldReturn200() throws Exception {
-        Order order = mock(Order.class);
-        when(order.getId()).thenReturn(1L);
-        when(orderService.getById(1L)).thenReturn(order);
+        when(orderService.getView(1L)).thenReturn(view(Status.PAID));
 
         mockMvc.perform(get("/orders/1/items"))
                 .andExpect(status().isOk());
@@ -74,8 +193,10 @@ public class OrderControllerTest {
     }
 
     @Test
-    void getByStatus_existingStatus_shouldReturn200() throws Exception {
-        when(orderService.getByStatus("CREATED")).thenReturn(List.of());
+    void search_existingStatus_shouldReturn200() throws Exception {
+        when(orderService.search(new OrderSearchCriteria(Status.CREATED, null, null, null), null,
+                OrderService.DEFAULT_PAGE_SIZE))
+                .thenReturn(new OrderPage(List.of(), null));
 
         mockMvc.perform(get("/orders")
                 .param("status", "CREATED"))
@@ -83,9 +204,9 @@ public class OrderControllerTest {
     }
 
     @Test
-    void getCreatedBetween_existingValues_shouldReturn200() throws Exception {
-        when(orderService.getCreatedBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(List.of());
+    void search_createdBetween_shouldReturn200() throws Exception {
+        when(orderService.search(any(OrderSearchCriteria.class), any(), anyInt()))
+                .thenReturn(new OrderPage(List.of(), null));
 
         mockMvc.perform(get("/orders")
                 .param("from", "2025-10-10T10:20:11")
@@ -95,18 +216,29 @@ public class OrderControllerTest {
 
     @Test
     void getOrderSummary_existingId_shouldReturn200() throws Exception {
-        Order order = mock(Order.class);
-        when(orderService.getById(1L)).thenReturn(order);
+        when(orderService.getView(1L)).thenReturn(view(Status.CREATED));
 
         mockMvc.perform(get("/orders/1/summary"))
                 .andExpect(status().isOk());
     }
 
     @Test
-    void getOrderSummary_wrongTypeId_shouldReturn400() throws Exception {
-        Order order = mock(Order.class);
-        when(orderService.getById(1L)).thenReturn(order);
+    void getSummaries_shouldReturn200() throws Exception {
+        when(orderService.getSummaries(List.of(1L, 2L))).thenReturn(List.of());
+
+        mockMvc.perform(get("/orders/summaries")
+                .param("ids", "1,2"))
+                .andExpect(status().isOk());
+    }
 
+    @Test
+    void getSummaries_missingIds_shouldReturn400() throws Exception {
+        mockMvc.perform(get("/orders/summaries"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getOrderSummary_wrongTypeId_shouldReturn400() throws Exception {
         mockMvc.perform(get("/orders/b/summary"))
                 .andExpect(status().isBadRequest());
     }
@@ -124,6 +256,114 @@ public class OrderControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void create_withIdempotencyKey_shouldReturn201WithLocation() throws Exception {
+        CreateOrderItemRequest item = new CreateOrderItemRequest(1L, 10);
+        CreateOrderRequest req = new CreateOrderRequest(List.of(item));
+        when(orderService.create(req, "retry-1")).thenReturn(new OrderDto(7L, null, Status.CREATED, List.of()));
+
+        mockMvc.perform(post("/orders")
+                .header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/orders/7"));
+    }
+
+    @Test
+    void create_asyncIntake_shouldReturn202WithTicketLocation() throws Exception {
+        CreateOrderRequest req = new CreateOrderRequest(List.of(new CreateOrderItemRequest(1L, 10)));
+        UUID ticketId = UUID.randomUUID();
+        when(orderIntake.isEnabled()).thenReturn(true);
+        when(orderIntake.submit(req, null))
+                .thenReturn(new OrderTicketDto(ticketId, OrderTicketStatus.QUEUED, null, null, null));
+
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/orders/tickets/" + ticketId));
+    }
+
+    @Test
+    void create_asyncIntakeFull_shouldReturn503WithRetryAfter() throws Exception {
+        CreateOrderRequest req = new CreateOrderRequest(List.of(new CreateOrderItemRequest(1L, 10)));
+        when(orderIntake.isEnabled()).thenReturn(true);
+        when(orderIntake.submit(req, null)).thenThrow(new OrderIntakeFullException(10, 1));
+
+        mockMvc.perform(post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void getTicket_created_shouldRedirectToOrder() throws Exception {
+        UUID ticketId = UUID.randomUUID();
+        when(orderIntake.getTicket(ticketId))
+                .thenReturn(new OrderTicketDto(ticketId, OrderTicketStatus.CREATED, 5L, null, null));
+
+        mockMvc.perform(get("/orders/tickets/" + ticketId))
+                .andExpect(status().isSeeOther())
+                .andExpect(header().string("Location", "/orders/5"));
+    }
+
+    @Test
+    void getTicket_queued_shouldReturn200() throws Exception {
+        UUID ticketId = UUID.randomUUID();
+        when(orderIntake.getTicket(ticketId))
+                .thenReturn(new OrderTicketDto(ticketId, OrderTicketStatus.QUEUED, null, null, null));
+
+        mockMvc.perform(get("/orders/tickets/" + ticketId))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateStatuses_shouldReturn200() throws Exception {
+        BulkUpdateOrderStatusRequest req = new BulkUpdateOrderStatusRequest(List.of(1L, 2L), "PAID");
+        when(orderBulkStatusService.updateStatus(req.orderIds(), "PAID"))
+                .thenReturn(BulkStatusResultDto.from(Status.PAID, List.of()));
+
+        mockMvc.perform(patch("/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateStatuses_emptyIds_shouldReturn400() throws Exception {
+        BulkUpdateOrderStatusRequest req = new BulkUpdateOrderStatusRequest(List.of(), "PAID");
+
+        mockMvc.perform(patch("/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cancelAll_shouldReturn200() throws Exception {
+        BulkCancelOrdersRequest req = new BulkCancelOrdersRequest(List.of(1L, 2L));
+        when(orderBulkStatusService.cancel(req.orderIds()))
+                .thenReturn(BulkStatusResultDto.from(Status.CANCELLED, List.of()));
+
+        mockMvc.perform(post("/orders/cancel")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void importPayments_csv_shouldReturn200() throws Exception {
+        when(orderBulkStatusService.importPaymentsCsv(any()))
+                .thenReturn(new PaymentImportResultDto(1, 1, 0, 0, 0, List.of()));
+
+        mockMvc.perform(post("/orders/payments/import")
+                .contentType("text/csv")
+                .content("order_id\n1\n"))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void create_invalidRequestBody() throws Exception {
         mockMvc.perform(post("/orders")
@@ -166,4 +406,12 @@ public class OrderControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    private static OrderView view(Status status) {
+        LocalDateTime created = LocalDateTime.of(2025, 1, 1, 12, 0);
+        return new OrderView(
+                new OrderDto(1L, created, status, List.of()),
+                new OrderSummaryDto(1L, BigDecimal.TEN, 1, status, created),
+                "\"1-" + status + "\"",
+                status.isTerminal());
+    }
 }
@@ -0,0 +1,150 @@
+package com.example.shopbackend.demo.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.common.OutOfStockException;
+import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.product.Product;
+import com.example.shopbackend.demo.product.ProductRepository;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Not @Transactional: rollback has to be observed from committed state
+@SpringBootTest
+public class OrderCreateConcurrencyTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    User user;
+    Product plenty;
+    Product scarce;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("atomicity@example.com", "hash"));
+        SecurityContextHolder.getContext().setAuthentication(
+                AuthenticatedUser.of(user).toAuthentication());
+        plenty = productRepository.save(new Product("Shirt", 10, 200));
+        scarce = productRepository.save(new Product("Hat", 10, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        productRepository.deleteAll(List.of(plenty, scarce));
+        userRepository.delete(user);
+    }
+
+    @Test
+    void create_oneLineShort_reservesNothing() {
+        CreateOrderRequest orderRequest = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(plenty.getId(), 5),
+                new CreateOrderItemRequest(scarce.getId(), 3)));
+
+        OutOfStockException ex = assertThrows(OutOfStockException.class, () -> orderService.create(orderRequest));
+
+        assertEquals(scarce.getId(), ex.getProductId());
+        assertEquals(200, productRepository.findById(plenty.getId()).orElseThrow().getStock());
+        assertEquals(2, productRepository.findById(scarce.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void create_failedCart_doesNotMarkFittingLineSoldOut() {
+        Product exact = productRepository.save(new Product("Scarf", 10, 5));
+        CreateOrderRequest failing = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(exact.getId(), 5),
+                new CreateOrderItemRequest(scarce.getId(), 3)));
+        assertThrows(OutOfStockException.class, () -> orderService.create(failing));
+
+        Long orderId = orderService.create(new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(exact.getId(), 5)))).getId();
+
+        orderRepository.deleteById(orderId);
+        productRepository.delete(exact);
+    }
+
+    @Test
+    void create_takingLastUnits_rejectsNextOrderWithoutStatements() {
+        CreateOrderRequest lastUnits = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(scarce.getId(), 2)));
+        Long orderId = orderService.create(lastUnits).getId();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertThrows(OutOfStockException.class, () -> orderService.create(new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(scarce.getId(), 1)))));
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        orderRepository.deleteById(orderId);
+    }
+
+    @Test
+    void create_opposingCarts_allSucceedWithConsistentStock() throws Exception {
+        int ordersPerCart = 20;
+        Product other = productRepository.save(new Product("Belt", 10, 200));
+        CreateOrderRequest forward = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(plenty.getId(), 1),
+                new CreateOrderItemRequest(other.getId(), 1)));
+        CreateOrderRequest backward = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(other.getId(), 1),
+                new CreateOrderItemRequest(plenty.getId(), 1)));
+
+        List<Long> orderIds = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (CreateOrderRequest cart : List.of(forward, backward, forward, backward))
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(
+                            AuthenticatedUser.of(user).toAuthentication());
+                    for (int i = 0; i < ordersPerCart / 2; i++)
+                        orderIds.add(orderService.create(cart).getId());
+                    return null;
+                }));
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+
+            assertEquals(2 * ordersPerCart, orderIds.size());
+            assertEquals(200 - 2 * ordersPerCart, productRepository.findById(plenty.getId()).orElseThrow().getStock());
+            assertEquals(200 - 2 * ordersPerCart, productRepository.findById(other.getId()).orElseThrow().getStock());
+        } finally {
+            executor.shutdownNow();
+            orderRepository.deleteAllById(orderIds);
+            productRepository.delete(other);
+        }
+    }
+}
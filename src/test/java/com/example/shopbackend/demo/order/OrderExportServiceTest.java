@@ -0,0 +1,124 @@
+package com.example.shopbackend.demo.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.common.InvalidDateRangeException;
+import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.product.Product;
+import com.example.shopbackend.demo.product.ProductRepository;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.transaction.Transactional;
+
+@SpringBootTest(properties = "app.orders.export.fetch-size=2")
+@Transactional
+public class OrderExportServiceTest {
+
+    @Autowired
+    OrderExportService exportService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    User user;
+    List<Long> orderIds;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("export@example.com", "hash"));
+        SecurityContextHolder.getContext().setAuthentication(
+                AuthenticatedUser.of(user).toAuthentication());
+        Product shirt = productRepository.save(new Product("Shirt, \"large\"", 10, 100));
+        Product hat = productRepository.save(new Product("Hat", 25, 100));
+
+        orderIds = List.of(
+                orderService.create(new CreateOrderRequest(List.of(
+                        new CreateOrderItemRequest(shirt.getId(), 2),
+                        new CreateOrderItemRequest(hat.getId(), 1)))).getId(),
+                orderService.create(new CreateOrderRequest(List.of(
+                        new CreateOrderItemRequest(hat.getId(), 3)))).getId(),
+                orderService.create(new CreateOrderRequest(List.of(
+                        new CreateOrderItemRequest(shirt.getId(), 1)))).getId());
+        orderService.updateStatus(orderIds.get(1), new UpdateOrderStatusRequest("PAID"));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void export_ndjson_writesOneLinePerOrderWithItsLines() throws Exception {
+        List<JsonNode> lines = export(OrderSearchCriteria.forUser(user.getId()), ExportFormat.NDJSON).lines()
+                .map(this::readTree)
+                .toList();
+
+        assertEquals(3, lines.size());
+        assertEquals(orderIds.get(0).longValue(), lines.get(0).get("id").asLong());
+        assertEquals(2, lines.get(0).get("items").size());
+        assertEquals(45, lines.get(0).get("totalValue").asInt());
+        assertEquals("Shirt, \"large\"", lines.get(0).get("items").get(0).get("productName").asText());
+        assertEquals(1, lines.get(2).get("items").size());
+    }
+
+    @Test
+    void export_csvWithStatusFilter_writesHeaderAndMatchingLines() {
+        List<String> lines = export(new OrderSearchCriteria(Status.CREATED, null, null, user.getId()), ExportFormat.CSV)
+                .lines()
+                .toList();
+
+        assertEquals(OrderExportService.CSV_HEADER, lines.get(0));
+        assertEquals(4, lines.size());
+        assertEquals(orderIds.get(0) + "", lines.get(1).split(",")[0]);
+        assertEquals("\"Shirt, \"\"large\"\"\"", lines.get(1).split(",", 7)[6].replaceAll(",\\d+,\\d+$", ""));
+        assertEquals(orderIds.get(2) + "", lines.get(3).split(",")[0]);
+    }
+
+    @Test
+    void validate_fromAfterTo_throws() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThrows(InvalidDateRangeException.class,
+                () -> exportService.validate(new OrderSearchCriteria(null, now, now.minusDays(1), null)));
+    }
+
+    private String export(OrderSearchCriteria criteria, ExportFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(criteria, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.shopbackend.demo.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.common.IdempotencyKeyReusedException;
+import com.example.shopbackend.demo.common.InvalidIdempotencyKeyException;
+import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.product.Product;
+import com.example.shopbackend.demo.product.ProductRepository;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+
+// Not @Transactional: duplicates race in their own transactions
+@SpringBootTest
+public class OrderIdempotencyTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    User user;
+    Product product;
+    CreateOrderRequest request;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("idempotency@example.com", "hash"));
+        authenticate();
+        product = productRepository.save(new Product("Shirt", 10, 100));
+        request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 2)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        idempotencyKeyRepository.deleteAll();
+        orderRepository.deleteAll(orderRepository.findAll()
+                .stream()
+                .filter(order -> order.getUser().getId() == user.getId())
+                .toList());
+        productRepository.delete(product);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void create_sameKeyTwice_returnsOriginalOrderAndReservesOnce() {
+        OrderDto first = orderService.create(request, "retry-1");
+        OrderDto retried = orderService.create(request, "retry-1");
+
+        assertEquals(first, retried);
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void create_concurrentDuplicates_waitForFirstExecution() throws Exception {
+        int duplicates = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(duplicates);
+        Set<Long> orderIds = new HashSet<>();
+        try {
+            List<Future<OrderDto>> futures = new ArrayList<>();
+            for (int i = 0; i < duplicates; i++)
+                futures.add(executor.submit(() -> {
+                    authenticate();
+                    start.await();
+                    return orderService.create(request, "storm-1");
+                }));
+            start.countDown();
+            for (Future<OrderDto> future : futures)
+                orderIds.add(future.get(30, TimeUnit.SECONDS).id());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, orderIds.size());
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void create_keyStoredByAnotherNode_replaysFromTable() {
+        Order original = orderService.create(request);
+        idempotencyKeyRepository.save(new OrderIdempotencyKey(user.getId(), "other-node-1",
+                OrderService.fingerprint(request), original.getId()));
+
+        assertEquals(original.getId(), orderService.create(request, "other-node-1").id());
+        assertEquals(98, stock());
+    }
+
+    @Test
+    void create_sameKeyDifferentRequest_throws() {
+        orderService.create(request, "retry-2");
+        CreateOrderRequest other = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 3)));
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> orderService.create(other, "retry-2"));
+    }
+
+    @Test
+    void create_blankKey_throws() {
+        assertThrows(InvalidIdempotencyKeyException.class, () -> orderService.create(request, " "));
+    }
+
+    private void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(
+                AuthenticatedUser.of(user).toAuthentication());
+    }
+
+    private int stock() {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
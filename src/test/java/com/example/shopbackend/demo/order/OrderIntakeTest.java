@@ -0,0 +1,144 @@
+package com.example.shopbackend.demo.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.common.NotFoundException;
+import com.example.shopbackend.demo.common.OrderIntakeFullException;
+import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.product.Product;
+import com.example.shopbackend.demo.product.ProductRepository;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.Role;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = {
+        "app.orders.intake.enabled=true",
+        "app.orders.intake.workers=2",
+        "app.orders.intake.batch-size=4" })
+public class OrderIntakeTest {
+
+    @Autowired
+    OrderIntake orderIntake;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    User user;
+    Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("intake@example.com", "hash"));
+        authenticateAs(AuthenticatedUser.of(user));
+        product = productRepository.save(new Product("Shirt", 10, 12));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll(orderRepository.findAll()
+                .stream()
+                .filter(order -> order.getUser().getId() == user.getId())
+                .toList());
+        productRepository.delete(product);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void submit_queuedOrders_areCreatedByWorkers() throws Exception {
+        CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 1)));
+        List<OrderTicketDto> tickets = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            tickets.add(orderIntake.submit(request, null));
+
+        for (OrderTicketDto ticket : tickets) {
+            OrderTicketDto done = awaitFinished(ticket);
+            assertEquals(OrderTicketStatus.CREATED, done.status());
+            assertEquals(user.getId(), orderRepository.findById(done.orderId()).orElseThrow().getUser().getId());
+        }
+        assertEquals(2, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertTrue(meterRegistry.get("orders.intake.wait").timer().count() >= 10);
+    }
+
+    @Test
+    void submit_outOfStock_ticketFails() throws Exception {
+        CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 13)));
+
+        OrderTicketDto done = awaitFinished(orderIntake.submit(request, null));
+
+        assertEquals(OrderTicketStatus.FAILED, done.status());
+        assertEquals("OUT_OF_STOCK", done.errorCode());
+    }
+
+    @Test
+    void getTicket_otherUser_notFound() throws Exception {
+        CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 1)));
+        OrderTicketDto ticket = orderIntake.submit(request, null);
+
+        authenticateAs(new AuthenticatedUser(user.getId() + 1, "someone-else@example.com", Role.USER));
+
+        assertThrows(NotFoundException.class, () -> orderIntake.getTicket(ticket.id()));
+
+        authenticateAs(AuthenticatedUser.of(user));
+        assertEquals(OrderTicketStatus.CREATED, awaitFinished(ticket).status());
+    }
+
+    @Test
+    void submit_queueFull_rejects() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderIntake stalled = new OrderIntake(mock(OrderService.class), registry, true, 2, 0, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1));
+        try {
+            CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(1L, 1)));
+            stalled.submit(request, null);
+            stalled.submit(request, null);
+
+            assertThrows(OrderIntakeFullException.class, () -> stalled.submit(request, null));
+            assertEquals(2, registry.get("orders.intake.queue.depth").gauge().value());
+            assertEquals(1, registry.get("orders.intake.rejected").counter().count());
+        } finally {
+            stalled.destroy();
+        }
+    }
+
+    private OrderTicketDto awaitFinished(OrderTicketDto ticket) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        OrderTicketDto current = orderIntake.getTicket(ticket.id());
+        while (current.status() == OrderTicketStatus.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            current = orderIntake.getTicket(ticket.id());
+        }
+        return current;
+    }
+
+    private static void authenticateAs(AuthenticatedUser principal) {
+        SecurityContextHolder.getContext().setAuthentication(principal.toAuthentication());
+    }
+}
@@ -1,27 +1,41 @@
 package com.example.shopbackend.demo.order;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import com.example.shopbackend.demo.common.InvalidCursorException;
 import com.example.shopbackend.demo.common.InvalidDateRangeException;
 import com.example.shopbackend.demo.common.InvalidStatusException;
 import com.example.shopbackend.demo.common.InvalidStatusTransitionException;
 import com.example.shopbackend.demo.common.NotFoundException;
+import com.example.shopbackend.demo.common.OutOfStockException;
+import com.example.shopbackend.demo.common.TooManyIdsException;
 import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
 import com.example.shopbackend.demo.orderitem.OrderItem;
+import com.example.shopbackend.demo.orderitem.OrderItemDto;
 import com.example.shopbackend.demo.product.Product;
 import com.example.shopbackend.demo.product.ProductRepository;
 import com.example.shopbackend.demo.product.ProductService;
+import com.example.shopbackend.demo.product.UpdateProductRequest;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 
 @SpringBootTest
@@ -40,8 +54,28 @@ public class OrderServiceTest {
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    private static final OrderSearchCriteria ALL = new OrderSearchCriteria(null, null, null, null);
+
+    @BeforeEach
+    void authenticate() {
+        User user = userRepository.save(new User("order-test@example.com", "hash"));
+        SecurityContextHolder.getContext().setAuthentication(
+                AuthenticatedUser.of(user).toAuthentication());
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
-    void getAll_returnsOrdersSorted() throws InterruptedException {
+    void search_noFilters_returnsOrdersNewestFirst() throws InterruptedException {
         Product productOne = new Product("Shirt", 10, 200);
         Product productTwo = new Product("Shirt Also", 11, 201);
         productRepository.save(productOne);
@@ -55,12 +89,56 @@ public class OrderServiceTest {
 
         orderService.create(orderRequest);
 
-        List<Order> orders = orderService.getAll();
+        List<Order> orders = orderService.search(ALL, null, 10).orders();
 
         assertTrue(orders.get(0).getCreatedAt().isAfter(orders.get(1).getCreatedAt()), "Expected order with createdAt: "
                 + orders.get(1).getCreatedAt() + " to be first but got order with: " + orders.get(0).getCreatedAt());
     }
 
+    @Test
+    void search_followingCursor_visitsEveryOrderOnce() {
+        Product product = new Product("Shirt", 10, 200);
+        productRepository.save(product);
+
+        CreateOrderRequest orderRequest = new CreateOrderRequest(
+                List.of(new CreateOrderItemRequest(product.getId(), 1)));
+        List<Long> createdIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+            createdIds.add(orderService.create(orderRequest).getId());
+
+        List<Long> visitedIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderPage page = orderService.search(ALL, cursor, 3);
+            page.orders().forEach(order -> visitedIds.add(order.getId()));
+            cursor = page.next() == null ? null : page.next().encode();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(createdIds.reversed(), visitedIds);
+    }
+
+    @Test
+    void search_sizeAboveMax_isCapped() {
+        Product product = productRepository.save(new Product("Shirt", 10, OrderService.MAX_PAGE_SIZE + 1));
+        CreateOrderRequest orderRequest = new CreateOrderRequest(
+                List.of(new CreateOrderItemRequest(product.getId(), 1)));
+        for (int i = 0; i <= OrderService.MAX_PAGE_SIZE; i++)
+            orderService.create(orderRequest);
+
+        OrderPage page = orderService.search(ALL, null, OrderService.MAX_PAGE_SIZE * 10);
+
+        assertEquals(OrderService.MAX_PAGE_SIZE, page.orders().size());
+        assertNotNull(page.next());
+    }
+
+    @Test
+    void search_malformedCursor_throwsException() {
+        assertThrows(InvalidCursorException.class, () -> orderService.search(ALL, "not-a-cursor", 10));
+    }
+
     @Test
     void getById_existingOrder_returnsOrder() {
         Product product = new Product("Shirt", 10, 10);
@@ -89,7 +167,7 @@ public class OrderServiceTest {
     }
 
     @Test
-    void getByStatus_returnsMatchingOrders() {
+    void search_byStatus_returnsMatchingOrders() {
         Product productOne = new Product("Shirt", 10, 200);
         Product productTwo = new Product("Shirt Also", 11, 201);
         productRepository.save(productOne);
@@ -115,36 +193,36 @@ public class OrderServiceTest {
         orderRepository.save(orderThree);
         orderRepository.save(orderFour);
 
-        List<Order> createdOrders = orderService.getByStatus("CREATED");
+        List<Order> createdOrders = searchByStatus(Status.CREATED);
         for (Order order : createdOrders) {
             assertEquals(Status.CREATED, order.getStatus());
         }
 
-        List<Order> paidOrders = orderService.getByStatus("PAID");
+        List<Order> paidOrders = searchByStatus(Status.PAID);
         for (Order order : paidOrders) {
             assertEquals(Status.PAID, order.getStatus());
         }
 
-        List<Order> shippedOrders = orderService.getByStatus("SHIPPED");
+        List<Order> shippedOrders = searchByStatus(Status.SHIPPED);
         for (Order order : shippedOrders) {
             assertEquals(Status.SHIPPED, order.getStatus());
         }
 
-        List<Order> cancelledOrders = orderService.getByStatus("CANCELLED");
+        List<Order> cancelledOrders = searchByStatus(Status.CANCELLED);
         for (Order order : cancelledOrders) {
             assertEquals(Status.CANCELLED, order.getStatus());
         }
     }
 
     @Test
-    void getByStatus_misspelledStatus_throwsException() {
+    void search_misspelledStatus_throwsException() {
         assertThrows(InvalidStatusException.class, () -> {
-            orderService.getByStatus("cancl");
+            Status.parseStatus("cancl");
         });
     }
 
     @Test
-    void getCreatedBetween_validRange_returnsMatchingOrders() {
+    void search_createdBetween_returnsMatchingOrders() {
         Product product = new Product("Shirt", 10, 200);
         productRepository.save(product);
 
@@ -157,18 +235,20 @@ public class OrderServiceTest {
         LocalDateTime from = order.getCreatedAt().minusDays(1);
         LocalDateTime to = from.plusDays(100L);
 
-        List<Order> matchingOrders = orderService.getCreatedBetween(from, to);
+        List<Order> matchingOrders = orderService
+                .search(new OrderSearchCriteria(null, from, to, null), null, 10)
+                .orders();
         assertEquals(1, matchingOrders.size());
         assertEquals(orderId, matchingOrders.get(0).getId());
     }
 
     @Test
-    void getCreatedBetween_fromAfterTo_throwsException() {
+    void search_fromAfterTo_throwsException() {
         assertThrows(InvalidDateRangeException.class, () -> {
             LocalDateTime from = LocalDateTime.now();
             LocalDateTime to = from.minusDays(100L);
 
-            orderService.getCreatedBetween(from, to);
+            orderService.search(new OrderSearchCriteria(null, from, to, null), null, 10);
         });
     }
 
@@ -274,7 +354,7 @@ public class OrderServiceTest {
 
         orderService.cancel(order.getId());
 
-        List<Order> orders = orderService.getByStatus("CANCELLED");
+        List<Order> orders = searchByStatus(Status.CANCELLED);
 
         assertEquals(Status.CANCELLED, orders.get(0).getStatus());
     }
@@ -363,4 +443,121 @@ public class OrderServiceTest {
         Order fetchedOrder = orderService.getById(order.getId());
         assertEquals(totalValuBigDecimal, fetchedOrder.getTotalValue());
     }
+
+    @Test
+    void create_storesTotalAndItemCount() {
+        Product product = productRepository.save(new Product("Shirt", 199, 200));
+        Product productTwo = productRepository.save(new Product("Shirt Also", 250, 200));
+        Order order = orderService.create(new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(product.getId(), 3),
+                new CreateOrderItemRequest(productTwo.getId(), 2))));
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderSummaryDto summary = OrderSummaryDto.from(orderService.getWithoutItems(order.getId()));
+        assertEquals(BigDecimal.valueOf(199 * 3 + 250 * 2), summary.orderValue());
+        assertEquals(2, summary.itemCount());
+    }
+
+    @Test
+    void getById_productRenamed_itemsKeepSnapshot() {
+        Product product = productRepository.save(new Product("Shirt", 10, 200, "shirt.png"));
+        Order order = orderService.create(new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(product.getId(), 1))));
+
+        productService.update(product.getId(), new UpdateProductRequest("Renamed", 10, 200));
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderItemDto item = OrderDto.from(orderService.getById(order.getId())).items().get(0);
+        assertEquals("Shirt", item.productName());
+        assertEquals("/api/images/shirt.png", item.imageUrl());
+        assertEquals(product.getId(), item.productId());
+    }
+
+    @Test
+    void searchSummaries_pagesWithCursor() {
+        Product product = productRepository.save(new Product("Shirt", 10, 200));
+        CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 2)));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            ids.add(orderService.create(request).getId());
+
+        OrderSummaryPageDto first = orderService.searchSummaries(ALL, null, 2);
+        OrderSummaryPageDto second = orderService.searchSummaries(ALL, first.nextCursor(), 2);
+
+        assertEquals(List.of(ids.get(2), ids.get(1)), first.items().stream().map(OrderSummaryDto::orderId).toList());
+        assertEquals(List.of(ids.get(0)), second.items().stream().map(OrderSummaryDto::orderId).toList());
+        assertEquals(null, second.nextCursor());
+        assertEquals(BigDecimal.valueOf(20), second.items().get(0).orderValue());
+    }
+
+    @Test
+    void getSummaries_tooManyIds_throws() {
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i <= OrderService.MAX_SUMMARY_IDS; i++)
+            ids.add(i);
+
+        assertThrows(TooManyIdsException.class, () -> orderService.getSummaries(ids));
+    }
+
+    @Test
+    void create_duplicateProductLines_mergesIntoOneItem() {
+        Product product = new Product("Shirt", 10, 200);
+        productRepository.save(product);
+
+        CreateOrderRequest orderRequest = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(product.getId(), 3),
+                new CreateOrderItemRequest(product.getId(), 4)));
+
+        Order order = orderService.create(orderRequest);
+
+        assertEquals(1, order.getItems().size());
+        assertEquals(7, order.getItems().get(0).getQuantity());
+        assertEquals(193, productService.getById(product.getId()).getStock());
+    }
+
+    @Test
+    void create_oneLineShort_reportsShortLine() {
+        Product plenty = productRepository.save(new Product("Shirt", 10, 200));
+        Product scarce = productRepository.save(new Product("Hat", 10, 2));
+
+        CreateOrderRequest orderRequest = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(plenty.getId(), 5),
+                new CreateOrderItemRequest(scarce.getId(), 3)));
+
+        OutOfStockException ex = assertThrows(OutOfStockException.class, () -> orderService.create(orderRequest));
+
+        assertEquals(scarce.getId(), ex.getProductId());
+        assertEquals(3, ex.getRequested());
+        assertEquals(2, ex.getAvailable());
+    }
+
+    @Test
+    void create_shortLineAfterFittingLine_reportsStockBeforeReservation() {
+        Product fitting = productRepository.save(new Product("Shirt", 10, 8));
+        Product scarce = productRepository.save(new Product("Hat", 10, 2));
+
+        CreateOrderRequest orderRequest = new CreateOrderRequest(List.of(
+                new CreateOrderItemRequest(fitting.getId(), 5),
+                new CreateOrderItemRequest(scarce.getId(), 5)));
+
+        OutOfStockException ex = assertThrows(OutOfStockException.class, () -> orderService.create(orderRequest));
+
+        assertEquals(scarce.getId(), ex.getProductId());
+        assertEquals(5, ex.getRequested());
+        assertEquals(2, ex.getAvailable());
+        assertEquals(8, productRepository.findStockLevels(List.of(fitting.getId())).get(0).stock());
+    }
+
+    @Test
+    void create_missingProduct_throwsNotFoundException() {
+        CreateOrderRequest orderRequest = new CreateOrderRequest(List.of(new CreateOrderItemRequest(99999L, 1)));
+
+        assertThrows(NotFoundException.class, () -> orderService.create(orderRequest));
+    }
+
+    private List<Order> searchByStatus(Status status) {
+        return orderService.search(new OrderSearchCriteria(status, null, null, null), null, 100).orders();
+    }
 }
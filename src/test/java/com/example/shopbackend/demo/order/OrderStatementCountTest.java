@@ -0,0 +1,262 @@
+package com.example.shopbackend.demo.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.common.OutOfStockException;
+import com.example.shopbackend.demo.orderitem.CreateOrderItemRequest;
+import com.example.shopbackend.demo.orderitem.OrderItemDto;
+import com.example.shopbackend.demo.product.Product;
+import com.example.shopbackend.demo.product.ProductRepository;
+import com.example.shopbackend.demo.security.AuthenticatedUser;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+
+@SpringBootTest
+@Transactional
+public class OrderStatementCountTest {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderBulkStatusService bulkStatusService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User("statement-count@example.com", "hash"));
+        SecurityContextHolder.getContext().setAuthentication(
+                AuthenticatedUser.of(user).toAuthentication());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 5, 20 })
+    void search_statementCountIndependentOfOrdersAndLines(int size) {
+        Long lastOrderId = createOrders(size, size);
+
+        long statements = countStatements(() -> OrderPageDto.from(
+                orderService.search(new OrderSearchCriteria(null, null, null, null), null, size)));
+
+        assertEquals(2, statements);
+        assertEquals(lastOrderId, orderService.search(new OrderSearchCriteria(null, null, null, null), null, 1)
+                .orders().get(0).getId());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 5, 20 })
+    void detailItemsAndSummary_runOneStatementEach(int lines) {
+        Long id = createOrders(1, lines);
+
+        assertEquals(1, countStatements(() -> OrderDto.from(orderService.getById(id))));
+        assertEquals(1, countStatements(() -> orderService.getById(id).getItems().stream()
+                .map(OrderItemDto::from)
+                .toList()));
+        assertEquals(1 + lines, statistics.getEntityLoadCount());
+        assertEquals(1, countStatements(() -> OrderSummaryDto.from(orderService.getWithoutItems(id))));
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    void getView_terminalOrder_servedFromCache() {
+        Long id = createOrders(1, 3);
+        orderService.updateStatus(id, new UpdateOrderStatusRequest("CANCELLED"));
+        entityManager.flush();
+
+        assertEquals(1, countStatements(() -> orderService.getView(id)));
+        assertEquals(0, countStatements(() -> orderService.getView(id)));
+        assertEquals(Status.CANCELLED, orderService.getView(id).summary().status());
+    }
+
+    @Test
+    void getView_statusChange_invalidatesActiveEntry() {
+        Long id = createOrders(1, 1);
+        OrderView created = orderService.getView(id);
+
+        orderService.updateStatus(id, new UpdateOrderStatusRequest("PAID"));
+        entityManager.flush();
+
+        OrderView paid = orderService.getView(id);
+        assertEquals(Status.CREATED, created.order().status());
+        assertEquals(Status.PAID, paid.order().status());
+        assertTrue(!paid.immutable() && !paid.etag().equals(created.etag()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 5, 20 })
+    void summaries_runOneStatementWithoutLoadingOrders(int size) {
+        List<Long> ids = createOrderIds(size, size);
+
+        List<OrderSummaryDto> byId = new ArrayList<>();
+        assertEquals(1, countStatements(() -> byId.addAll(orderService.getSummaries(ids.reversed()))));
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(ids.reversed(), byId.stream().map(OrderSummaryDto::orderId).toList());
+        assertEquals(size, byId.get(0).itemCount());
+
+        List<OrderSummaryDto> page = new ArrayList<>();
+        assertEquals(1, countStatements(() -> page.addAll(orderService.searchSummaries(
+                new OrderSearchCriteria(null, null, null, null), null, size).items())));
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(ids.getLast(), page.get(0).orderId());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 25 })
+    void create_statementCountIndependentOfLines(int lines) {
+        List<CreateOrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            Product product = productRepository.save(new Product("Product " + i, 10, 1000));
+            items.add(new CreateOrderItemRequest(product.getId(), 1));
+        }
+        entityManager.flush();
+
+        long statements = countStatements(() -> {
+            orderService.create(new CreateOrderRequest(items));
+            entityManager.flush();
+        });
+
+        // products, stock update, order insert, batched item insert, id sequence refills
+        assertTrue(statements <= 7, "Expected at most 7 statements but was " + statements);
+    }
+
+    @Test
+    void createAndGetMine_neverLoadUser() {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        createOrders(3, 2);
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+
+        long statements = countStatements(() -> OrderPageDto.from(orderService.getMine(null, 10)));
+
+        // page query and item fetch, as for search
+        assertEquals(2, statements);
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void create_soldOutProduct_rejectedWithoutStatementsUntilRestocked() {
+        Product product = productRepository.save(new Product("Last one", 10, 1));
+        CreateOrderRequest request = new CreateOrderRequest(List.of(new CreateOrderItemRequest(product.getId(), 1)));
+        Order first = orderService.create(request);
+        assertThrows(OutOfStockException.class, () -> orderService.create(request));
+
+        long statements = countStatements(
+                () -> assertThrows(OutOfStockException.class, () -> orderService.create(request)));
+
+        assertEquals(0, statements);
+        orderService.cancel(first.getId());
+        assertEquals(product.getId(), orderService.create(request).getItems().get(0).getProduct().getId());
+    }
+
+    @Test
+    void cancel_statementCountIndependentOfLines() {
+        Long small = createOrders(1, 1);
+        Long large = createOrders(1, 25);
+
+        long smallStatements = countStatements(() -> {
+            orderService.cancel(small);
+            entityManager.flush();
+        });
+        long largeStatements = countStatements(() -> {
+            orderService.cancel(large);
+            entityManager.flush();
+        });
+
+        assertEquals(smallStatements, largeStatements);
+        assertEquals(1000, productRepository.findById(orderService.getById(large).getItems().get(24)
+                .getProduct().getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void bulkCancel_statementCountIndependentOfOrdersAndLines() {
+        List<Long> small = List.of(createOrders(1, 1));
+        List<Long> large = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            large.addAll(createOrderIds(5, 5));
+
+        long smallStatements = countStatements(() -> bulkStatusService.cancel(small));
+        long largeStatements = countStatements(() -> bulkStatusService.cancel(large));
+
+        // locking read, status update, grouped quantities, stock update
+        assertEquals(4, smallStatements);
+        assertEquals(4, largeStatements);
+    }
+
+    private Long createOrders(int orders, int linesPerOrder) {
+        List<CreateOrderItemRequest> lines = new ArrayList<>();
+        for (int i = 0; i < linesPerOrder; i++) {
+            Product product = productRepository.save(new Product("Product " + i, 10, 1000));
+            lines.add(new CreateOrderItemRequest(product.getId(), 1));
+        }
+
+        Long lastId = null;
+        for (int i = 0; i < orders; i++)
+            lastId = orderService.create(new CreateOrderRequest(lines)).getId();
+
+        entityManager.flush();
+        entityManager.clear();
+        return lastId;
+    }
+
+    private List<Long> createOrderIds(int orders, int linesPerOrder) {
+        List<CreateOrderItemRequest> lines = new ArrayList<>();
+        for (int i = 0; i < linesPerOrder; i++) {
+            Product product = productRepository.save(new Product("Product " + i, 10, 1000));
+            lines.add(new CreateOrderItemRequest(product.getId(), 1));
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < orders; i++)
+            ids.add(orderService.create(new CreateOrderRequest(lines)).getId());
+
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+
+    private long countStatements(Runnable readPath) {
+        entityManager.clear();
+        statistics.clear();
+        readPath.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.shopbackend.demo.product;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CatalogResponsesTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ObjectMapper objectMapper = new ObjectMapper();
+    ProductService productService = mock(ProductService.class);
+    ProductCache productCache = new ProductCache(meterRegistry, 100, Duration.ofMinutes(1), Duration.ofMinutes(5));
+    CatalogResponses catalogResponses = new CatalogResponses(productService, productCache, objectMapper,
+            meterRegistry, true, Duration.ZERO);
+
+    @AfterEach
+    void shutdown() {
+        catalogResponses.destroy();
+        productCache.destroy();
+    }
+
+    @Test
+    void current_sameListing_reusesRendering() {
+        List<ProductDto> products = List.of(dto(1L, 5));
+        when(productService.getAllDtos()).thenReturn(products);
+
+        CatalogResponses.Rendered first = catalogResponses.current();
+        CatalogResponses.Rendered second = catalogResponses.current();
+
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("products.catalog.renders").counter().count());
+    }
+
+    @Test
+    void current_equalListingCopy_reusesRendering() {
+        when(productService.getAllDtos()).thenReturn(List.of(dto(1L, 5)), List.of(dto(1L, 5)));
+
+        CatalogResponses.Rendered first = catalogResponses.current();
+        CatalogResponses.Rendered second = catalogResponses.current();
+
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("products.catalog.renders").counter().count());
+    }
+
+    @Test
+    void current_changedListing_rendersNewETag() {
+        when(productService.getAllDtos()).thenReturn(List.of(dto(1L, 5)), List.of(dto(1L, 4)));
+
+        CatalogResponses.Rendered before = catalogResponses.current();
+        CatalogResponses.Rendered after = catalogResponses.current();
+
+        assertNotEquals(before.etag(false), after.etag(false));
+    }
+
+    @Test
+    void rendered_gzipVariantHoldsTheSameJson() throws Exception {
+        List<ProductDto> products = List.of(dto(1L, 5), dto(2L, 0));
+
+        CatalogResponses.Rendered rendered = CatalogResponses.Rendered.of(products, objectMapper);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(products), rendered.body(false));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(rendered.body(true)))) {
+            assertArrayEquals(rendered.json(), gzip.readAllBytes());
+        }
+        assertNotEquals(rendered.etag(false), rendered.etag(true));
+    }
+
+    @Test
+    void invalidate_rebuildsOffThread() {
+        when(productService.getAllDtos()).thenReturn(List.of(dto(1L, 5)));
+
+        productCache.invalidate(1L);
+
+        verify(productService, timeout(5000)).getAllDtos();
+    }
+
+    private static ProductDto dto(Long id, int stock) {
+        return new ProductDto(id, "Shirt", 199, stock, null);
+    }
+}
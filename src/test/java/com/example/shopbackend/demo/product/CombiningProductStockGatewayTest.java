@@ -0,0 +1,184 @@
+package com.example.shopbackend.demo.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.common.OutOfStockException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = {
+        "app.stock.gateway=combining",
+        "app.stock.combining.window=20ms" })
+public class CombiningProductStockGatewayTest {
+
+    @Autowired
+    ProductStockGateway gateway;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    List<Product> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll(created);
+    }
+
+    @Test
+    void gateway_isCombining() {
+        assertTrue(gateway instanceof CombiningProductStockGateway);
+    }
+
+    @Test
+    void tryDecreaseStock_concurrentCallers_neverOversellAndShareUpdates() throws Exception {
+        Product product = save(new Product("Hot", 10, 25));
+        int callers = 40;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Boolean>> results = new ArrayList<>();
+        long flushesBefore = meterRegistry.get("stock.combiner.batch.size").summary().count();
+
+        try {
+            for (int i = 0; i < callers; i++)
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return inTransaction(() -> gateway.tryDecreaseStock(Map.of(product.getId(), 1)));
+                    } catch (OutOfStockException e) {
+                        return false;
+                    }
+                }));
+            start.countDown();
+
+            int granted = 0;
+            for (Future<Boolean> result : results)
+                if (result.get(30, TimeUnit.SECONDS))
+                    granted++;
+
+            assertEquals(25, granted);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, stockOf(product));
+        long flushes = meterRegistry.get("stock.combiner.batch.size").summary().count() - flushesBefore;
+        assertTrue(flushes < callers, "Expected combined updates but saw " + flushes + " flushes");
+    }
+
+    @Test
+    void tryDecreaseStock_oneLineShort_releasesOtherLines() throws Exception {
+        Product plenty = save(new Product("Plenty", 10, 10));
+        Product scarce = save(new Product("Scarce", 10, 1));
+
+        OutOfStockException ex = assertThrows(OutOfStockException.class,
+                () -> inTransaction(() -> gateway.tryDecreaseStock(Map.of(plenty.getId(), 4, scarce.getId(), 2))));
+
+        assertEquals(scarce.getId(), ex.getProductId());
+        assertEquals(1, ex.getAvailable());
+        awaitStock(plenty, 10);
+        assertEquals(1, stockOf(scarce));
+    }
+
+    @Test
+    void tryDecreaseStock_callerRollsBack_releasesReservation() throws Exception {
+        Product product = save(new Product("Rollback", 10, 10));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            gateway.tryDecreaseStock(Map.of(product.getId(), 3));
+            status.setRollbackOnly();
+        });
+
+        awaitStock(product, 10);
+    }
+
+    @Test
+    void tryDecreaseStock_shardedProduct_takesAndReleasesShardStock() throws Exception {
+        Product product = productRepository.save(new Product("Sharded", 10, 10));
+        productService.updateStockShards(product.getId(), 2);
+        try {
+            assertTrue(inTransaction(() -> gateway.tryDecreaseStock(Map.of(product.getId(), 7))));
+            assertEquals(3, availableOf(product));
+
+            OutOfStockException ex = assertThrows(OutOfStockException.class,
+                    () -> inTransaction(() -> gateway.tryDecreaseStock(Map.of(product.getId(), 4))));
+            assertEquals(3, ex.getAvailable());
+
+            new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> gateway.increaseStock(Map.of(product.getId(), 2)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (availableOf(product) != 5 && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            assertEquals(5, availableOf(product));
+            assertEquals(0, stockOf(product));
+        } finally {
+            productService.delete(product.getId());
+        }
+    }
+
+    @Test
+    void increaseStock_releasedAfterCommit_dropsCachedProduct() throws Exception {
+        Product product = save(new Product("Cached", 10, 10));
+        assertTrue(inTransaction(() -> gateway.tryDecreaseStock(Map.of(product.getId(), 4))));
+        assertEquals(6, productService.getDto(product.getId()).stock());
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> gateway.increaseStock(Map.of(product.getId(), 4)));
+        awaitStock(product, 10);
+
+        assertEquals(10, productService.getDto(product.getId()).stock());
+    }
+
+    private Product save(Product product) {
+        Product saved = productRepository.save(product);
+        created.add(saved);
+        return saved;
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private int availableOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getAvailableStock();
+    }
+
+    private void awaitStock(Product product, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stockOf(product) != expected && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertEquals(expected, stockOf(product));
+    }
+}
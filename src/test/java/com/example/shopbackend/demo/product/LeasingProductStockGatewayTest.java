@@ -0,0 +1,188 @@
+package com.example.shopbackend.demo.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.ShopBackendApplication;
+import com.example.shopbackend.demo.common.OutOfStockException;
+
+// Two application contexts play two replicas sharing one database
+public class LeasingProductStockGatewayTest {
+
+    Server server;
+    String url;
+    ConfigurableApplicationContext nodeA;
+    ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:leasing;DB_CLOSE_DELAY=-1;NON_KEYWORDS=USER";
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (nodeB != null)
+            nodeB.close();
+        if (nodeA != null)
+            nodeA.close();
+        server.stop();
+    }
+
+    @Test
+    void tryDecreaseStock_twoNodes_neverOversell() throws Exception {
+        nodeA = start("create", "1h");
+        nodeB = start("none", "1h");
+        Long productId = nodeA.getBean(ProductRepository.class).save(new Product("Hot", 10, 100)).getId();
+
+        int attemptsPerNode = 75;
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ConfigurableApplicationContext node : List.of(nodeA, nodeB))
+                for (int i = 0; i < attemptsPerNode; i++)
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            reserve(node, productId, 1);
+                            reserved.incrementAndGet();
+                        } catch (OutOfStockException e) {
+                            // another node may still hold the last units in its lease
+                        }
+                        return null;
+                    }));
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(reserved.get() > 0 && reserved.get() <= 100, "reserved " + reserved.get());
+        assertTrue(stock(productId) >= 0);
+
+        nodeB.close();
+        nodeA.close();
+        assertEquals(100, stock(productId) + reserved.get());
+    }
+
+    @Test
+    void tryDecreaseStock_leaseExpires_returnsUnusedUnits() throws Exception {
+        nodeA = start("create", "200ms");
+        Long productId = nodeA.getBean(ProductRepository.class).save(new Product("Hot", 10, 100)).getId();
+
+        reserve(nodeA, productId, 1);
+        assertEquals(100 - 8, stock(productId));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (stock(productId) != 99 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertEquals(99, stock(productId));
+    }
+
+    @Test
+    void tryDecreaseStock_leaseExpires_dropsCachedProduct() throws Exception {
+        nodeA = start("create", "200ms");
+        ProductService productService = nodeA.getBean(ProductService.class);
+        Long productId = nodeA.getBean(ProductRepository.class).save(new Product("Hot", 10, 100)).getId();
+
+        reserve(nodeA, productId, 1);
+        assertEquals(100 - 8, productService.getDto(productId).stock());
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (stock(productId) != 99 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertEquals(99, productService.getDto(productId).stock());
+    }
+
+    @Test
+    void tryDecreaseStock_rolledBack_keepsUnitsInLease() throws Exception {
+        nodeA = start("create", "1h");
+        Long productId = nodeA.getBean(ProductRepository.class).save(new Product("Hot", 10, 8)).getId();
+
+        new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            nodeA.getBean(ProductService.class).reserveStockOrThrow(Map.of(productId, 8));
+            status.setRollbackOnly();
+        });
+        reserve(nodeA, productId, 8);
+
+        nodeA.close();
+        assertEquals(0, stock(productId));
+    }
+
+    @Test
+    void tryDecreaseStock_shardedProduct_leasesFromShards() throws Exception {
+        nodeA = start("create", "1h");
+        ProductService productService = nodeA.getBean(ProductService.class);
+        Long productId = nodeA.getBean(ProductRepository.class).save(new Product("Hot", 10, 20)).getId();
+        productService.updateStockShards(productId, 4);
+
+        reserve(nodeA, productId, 3);
+        assertEquals(20 - 8, shardStock(productId));
+
+        productService.restock(Map.of(productId, 2));
+        assertEquals(20 - 8 + 2, shardStock(productId));
+        assertEquals(0, stock(productId));
+
+        nodeA.close();
+        assertEquals(20 - 3 + 2, shardStock(productId));
+    }
+
+    private ConfigurableApplicationContext start(String ddlAuto, String ttl) {
+        return new SpringApplicationBuilder(ShopBackendApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + url,
+                "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                "--app.stock.gateway=leasing",
+                "--app.stock.leasing.block-size=8",
+                "--app.stock.leasing.ttl=" + ttl);
+    }
+
+    private static void reserve(ConfigurableApplicationContext node, Long productId, int quantity) {
+        new TransactionTemplate(node.getBean(PlatformTransactionManager.class)).executeWithoutResult(
+                status -> node.getBean(ProductService.class).reserveStockOrThrow(Map.of(productId, quantity)));
+    }
+
+    private int stock(Long productId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                ResultSet rs = connection.createStatement()
+                        .executeQuery("select stock from product where id = " + productId)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private int shardStock(Long productId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                ResultSet rs = connection.createStatement().executeQuery(
+                        "select coalesce(sum(stock), 0) from product_stock_shard where product_id = " + productId)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
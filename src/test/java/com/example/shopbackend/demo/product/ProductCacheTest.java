@@ -0,0 +1,180 @@
+package com.example.shopbackend.demo.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.shopbackend.demo.common.NotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProductCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ProductCache cache = new ProductCache(meterRegistry, 2, Duration.ofMinutes(1), Duration.ofMinutes(5));
+
+    @AfterEach
+    void shutdown() {
+        cache.destroy();
+    }
+
+    @Test
+    void get_secondLookupIsServedFromCache() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, () -> dto(1L, loads.incrementAndGet()));
+        ProductDto second = cache.get(1L, () -> dto(1L, loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, second.stock());
+        assertEquals(1.0, count("hit"));
+        assertEquals(1.0, count("miss"));
+    }
+
+    @Test
+    void invalidate_dropsEntryAndListing() {
+        cache.get(1L, () -> dto(1L, 1));
+        cache.getAll(() -> List.of(dto(1L, 1)));
+
+        cache.invalidate(1L);
+
+        assertEquals(2, cache.get(1L, () -> dto(1L, 2)).stock());
+        assertEquals(2, cache.getAll(() -> List.of(dto(1L, 2))).getFirst().stock());
+    }
+
+    @Test
+    void invalidate_otherProductStillDropsListing() {
+        cache.get(1L, () -> dto(1L, 1));
+        cache.getAll(() -> List.of(dto(1L, 1)));
+
+        cache.invalidate(2L);
+
+        assertEquals(1, cache.get(1L, () -> dto(1L, 2)).stock());
+        assertEquals(2, cache.getAll(() -> List.of(dto(1L, 2))).getFirst().stock());
+    }
+
+    @Test
+    void concurrentMisses_shareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<ProductDto> first = executor.submit(() -> cache.get(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return dto(1L, 5);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<Future<ProductDto>> waiters = List.of(
+                    executor.submit(() -> cache.get(1L, () -> dto(1L, loads.incrementAndGet()))),
+                    executor.submit(() -> cache.get(1L, () -> dto(1L, loads.incrementAndGet()))));
+            release.countDown();
+
+            ProductDto loaded = first.get(5, TimeUnit.SECONDS);
+            for (Future<ProductDto> waiter : waiters)
+                assertSame(loaded, waiter.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidate_duringLoad_doesNotStoreOldValue() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ProductDto> inFlight = executor.submit(() -> cache.get(1L, () -> {
+                loading.countDown();
+                await(release);
+                return dto(1L, 1);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            cache.invalidate(1L);
+            release.countDown();
+            inFlight.get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, cache.get(1L, () -> dto(1L, 2)).stock());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoad_isNotCached() {
+        assertThrows(NotFoundException.class, () -> cache.get(9L, () -> {
+            throw new NotFoundException("Product", 9L);
+        }));
+
+        assertEquals(9L, cache.get(9L, () -> dto(9L, 1)).id());
+    }
+
+    @Test
+    void expiredEntry_isServedStaleWhileRefreshing() throws Exception {
+        ProductCache shortLived = new ProductCache(meterRegistry, 10, Duration.ZERO, Duration.ofMinutes(5));
+        try {
+            CountDownLatch refreshed = new CountDownLatch(1);
+            shortLived.get(1L, () -> dto(1L, 1));
+
+            ProductDto stale = shortLived.get(1L, () -> {
+                refreshed.countDown();
+                return dto(1L, 2);
+            });
+
+            assertEquals(1, stale.stock());
+            assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+            assertEquals(1.0, count("stale"));
+        } finally {
+            shortLived.destroy();
+        }
+    }
+
+    @Test
+    void maxEntries_evictsLeastRecentlyUsed() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, () -> dto(1L, loads.incrementAndGet()));
+        cache.get(2L, () -> dto(2L, loads.incrementAndGet()));
+        cache.get(1L, () -> dto(1L, loads.incrementAndGet()));
+        cache.get(3L, () -> dto(3L, loads.incrementAndGet()));
+
+        cache.get(1L, () -> dto(1L, loads.incrementAndGet()));
+        cache.get(2L, () -> dto(2L, loads.incrementAndGet()));
+
+        assertEquals(4, loads.get());
+        assertTrue(meterRegistry.get("products.cache.evictions").counter().count() >= 1);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("products.cache").tag("result", result).counter().count();
+    }
+
+    private static ProductDto dto(Long id, int stock) {
+        return new ProductDto(id, "Shirt", 199, stock, null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
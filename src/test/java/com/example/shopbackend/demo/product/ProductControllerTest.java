@@ -4,22 +4,30 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.example.shopbackend.demo.security.JwtService;
+import com.example.shopbackend.demo.security.RateLimitFilter;
+import com.example.shopbackend.demo.security.TokenRevocations;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import org.springframework.http.MediaType;
 
 @WebMvcTest(ProductController.class)
+@AutoConfigureMockMvc(addFilters = false)
 public class ProductControllerTest {
 
     @Autowired
@@ -30,11 +38,21 @@ public class ProductControllerTest {
     @MockitoBean
     ProductService productService;
 
+    @MockitoBean
+    CatalogResponses catalogResponses;
+
+    @MockitoBean
+    JwtService jwtService;
+
+    @MockitoBean
+    RateLimitFilter rateLimitFilter;
+
+    @MockitoBean
+    TokenRevocations tokenRevocations;
+
     @Test
     void getById_existingId_shouldReturn200() throws Exception {
-        Product product = mock(Product.class);
-        when(product.getId()).thenReturn(1L);
-        when(productService.getById(1L)).thenReturn(product);
+        when(productService.getDto(1L)).thenReturn(new ProductDto(1L, "Shirt", 199, 19, null));
 
         mockMvc.perform(get("/products/1"))
                 .andExpect(status().isOk());
@@ -83,9 +101,39 @@ public class ProductControllerTest {
 
     @Test
     void getAll_shouldReturn200() throws Exception {
-        when(productService.getAll()).thenReturn(List.of());
+        CatalogResponses.Rendered catalog = catalog();
+        when(catalogResponses.current()).thenReturn(catalog);
+
         mockMvc.perform(get("/products"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Content-Length", String.valueOf(catalog.json().length)))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andExpect(header().string("ETag", "\"" + catalog.etag(false) + "\""))
+                .andExpect(content().bytes(catalog.json()));
+    }
+
+    @Test
+    void getAll_acceptingGzip_shouldReturnCompressedVariant() throws Exception {
+        CatalogResponses.Rendered catalog = catalog();
+        when(catalogResponses.current()).thenReturn(catalog);
+
+        mockMvc.perform(get("/products")
+                .header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"" + catalog.etag(true) + "\""))
+                .andExpect(content().bytes(catalog.gzip()));
+    }
+
+    @Test
+    void getAll_matchingETag_shouldReturn304() throws Exception {
+        CatalogResponses.Rendered catalog = catalog();
+        when(catalogResponses.current()).thenReturn(catalog);
+
+        mockMvc.perform(get("/products")
+                .header("If-None-Match", "\"" + catalog.etag(false) + "\""))
+                .andExpect(status().isNotModified());
     }
 
     @Test
@@ -107,4 +155,26 @@ public class ProductControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void updateStockShards_validShards_shouldReturn200() throws Exception {
+        Product product = mock(Product.class);
+        when(productService.updateStockShards(1L, 4)).thenReturn(product);
+
+        mockMvc.perform(put("/products/1/stock-shards")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UpdateStockShardsRequest(4))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void updateStockShards_zeroShards_shouldReturn400() throws Exception {
+        mockMvc.perform(put("/products/1/stock-shards")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UpdateStockShardsRequest(0))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private CatalogResponses.Rendered catalog() {
+        return CatalogResponses.Rendered.of(List.of(new ProductDto(1L, "Shirt", 199, 19, null)), objectMapper);
+    }
 }
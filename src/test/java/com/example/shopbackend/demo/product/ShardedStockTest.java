@@ -0,0 +1,177 @@
+package com.example.shopbackend.demo.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shopbackend.demo.common.LockConflictRetry;
+import com.example.shopbackend.demo.common.OutOfStockException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+
+// Not @Transactional: shard updates have to race in their own transactions
+@SpringBootTest
+public class ShardedStockTest {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    LockConflictRetry lockConflictRetry;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        created.forEach(productService::delete);
+    }
+
+    @Test
+    void updateStockShards_spreadsStockAndReportsSum() {
+        Product product = save(new Product("Hot", 10, 10));
+
+        ProductDto dto = ProductDto.from(productService.updateStockShards(product.getId(), 4));
+
+        assertEquals(10, dto.stock());
+        assertEquals(List.of(3, 3, 2, 2), shardStock(product.getId()));
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertEquals(10, ProductDto.from(productService.getById(product.getId())).stock());
+        assertTrue(productService.getInStock(true).stream().anyMatch(p -> p.getId().equals(product.getId())));
+    }
+
+    @Test
+    void reserveStockOrThrow_quantityLargerThanAnyShard_takesAcrossShardsAndRebalances() {
+        Product product = save(new Product("Hot", 10, 10));
+        productService.updateStockShards(product.getId(), 4);
+
+        reserve(product.getId(), 7);
+
+        assertEquals(List.of(1, 1, 1, 0), shardStock(product.getId()));
+        assertThrows(OutOfStockException.class, () -> reserve(product.getId(), 4));
+        assertEquals(3, productService.getById(product.getId()).getAvailableStock());
+    }
+
+    @Test
+    void restock_shardedProduct_returnsUnitsToShards() {
+        Product product = save(new Product("Hot", 10, 8));
+        productService.updateStockShards(product.getId(), 2);
+
+        reserve(product.getId(), 3);
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> productService.restock(Map.of(product.getId(), 3)));
+
+        assertEquals(8, shardStock(product.getId()).stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void updateStockShards_backToOne_movesStockIntoProductRow() {
+        Product product = save(new Product("Hot", 10, 9));
+        productService.updateStockShards(product.getId(), 3);
+        reserve(product.getId(), 2);
+
+        Product unsharded = productService.updateStockShards(product.getId(), 1);
+
+        assertEquals(0, unsharded.getStockShards());
+        assertEquals(7, productRepository.findById(product.getId()).orElseThrow().getStock());
+        assertEquals(List.of(), shardStock(product.getId()));
+    }
+
+    @Test
+    void reserveStockOrThrow_concurrentCallers_neverOversell() throws Exception {
+        Product product = save(new Product("Hot", 10, 50));
+        productService.updateStockShards(product.getId(), 4);
+
+        int callers = 60;
+        double retriesBefore = lockRetries();
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                int quantity = 1 + i % 3;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        reserve(product.getId(), quantity);
+                        reserved.addAndGet(quantity);
+                    } catch (OutOfStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Integer> shards = shardStock(product.getId());
+        assertTrue(shards.stream().allMatch(stock -> stock >= 0), "negative shard " + shards);
+        assertEquals(50, reserved.get() + shards.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(rejected.get() > 0);
+        assertEquals(retriesBefore, lockRetries(), "shard locks conflicted");
+    }
+
+    private Product save(Product product) {
+        Product saved = productRepository.save(product);
+        created.add(saved.getId());
+        return saved;
+    }
+
+    private void reserve(Long productId, int quantity) {
+        lockConflictRetry.execute("test.reserve", () -> new TransactionTemplate(transactionManager)
+                .execute(status -> productService.reserveStockOrThrow(Map.of(productId, quantity))));
+    }
+
+    private double lockRetries() {
+        return meterRegistry.find("lock.retry").tag("operation", "test.reserve").counters()
+                .stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private List<Integer> shardStock(Long productId) {
+        return em.createQuery("""
+                select s.stock from ProductStockShard s
+                where s.productId = :productId
+                order by s.shardNo
+                """, Integer.class)
+                .setParameter("productId", productId)
+                .getResultList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.shopbackend.demo.product;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+
+// Run explicitly: mvn test -Dtest=StockGatewayContentionBenchmark
+@SpringBootTest
+public class StockGatewayContentionBenchmark {
+
+    private static final int THREADS = 64;
+    private static final int RESERVATIONS_PER_THREAD = 200;
+
+    @Autowired
+    JpaProductStockGateway jpaGateway;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    StockShards stockShards;
+
+    @Autowired
+    ProductCache productCache;
+
+    @Test
+    void hotProduct_jpaVersusCombining() throws Exception {
+        CombiningProductStockGateway combiningGateway = new CombiningProductStockGateway(em, stockShards, productCache,
+                transactionManager, new SimpleMeterRegistry(), Duration.ofMillis(2), Duration.ofSeconds(30), 4);
+        try {
+            run("warmup jpa", jpaGateway);
+            run("warmup combining", combiningGateway);
+            run("jpa", jpaGateway);
+            run("combining", combiningGateway);
+        } finally {
+            combiningGateway.destroy();
+        }
+    }
+
+    private void run(String label, ProductStockGateway gateway) throws Exception {
+        int total = THREADS * RESERVATIONS_PER_THREAD;
+        Product product = productRepository.save(new Product("Hot " + label, 10, total));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long[] latencies = new long[total];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * RESERVATIONS_PER_THREAD;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < RESERVATIONS_PER_THREAD; i++) {
+                        long began = System.nanoTime();
+                        transaction.execute(status -> gateway.tryDecreaseStock(Map.of(product.getId(), 1)));
+                        latencies[offset + i] = System.nanoTime() - began;
+                    }
+                    return null;
+                }));
+            }
+
+            long began = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(5, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - began;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-18s %8.0f reservations/s  p50=%6.2fms  p99=%6.2fms%n",
+                    label,
+                    total / (elapsed / 1e9),
+                    latencies[total / 2] / 1e6,
+                    latencies[(int) (total * 0.99)] / 1e6);
+
+            assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStock());
+        } finally {
+            executor.shutdownNow();
+            productRepository.delete(product);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.shopbackend.demo.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.shopbackend.demo.common.InvalidRefreshTokenException;
+import com.example.shopbackend.demo.user.User;
+import com.example.shopbackend.demo.user.UserRepository;
+
+@SpringBootTest
+public class AuthServiceTest {
+
+    @Autowired
+    AuthService authService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    JwtService jwtService;
+
+    @Autowired
+    TokenRevocations revocations;
+
+    @Autowired
+    RevokedTokenRepository revokedTokenRepository;
+
+    @Test
+    void login_hashWithHigherCost_keptAsStored() {
+        String stored = new BCryptPasswordEncoder(5).encode("secret");
+        User user = userRepository.save(new User("rehash@example.com", stored));
+
+        authService.login(new LoginRequest("rehash@example.com", "secret"));
+
+        assertEquals(stored, userRepository.findById(user.getId()).orElseThrow().getPasswordHash());
+    }
+
+    @Test
+    void refresh_rotatesAndReplayRevokesFamily() {
+        userRepository.save(new User("refresh@example.com", passwordEncoder.encode("secret")));
+        TokenResponse login = authService.login(new LoginRequest("refresh@example.com", "secret"));
+
+        TokenResponse rotated = authService.refresh(new RefreshRequest(login.refreshToken()));
+
+        assertNotEquals(login.refreshToken(), rotated.refreshToken());
+        assertEquals("refresh@example.com", jwtService.verify(rotated.token()).user().email());
+        assertThrows(InvalidRefreshTokenException.class,
+                () -> authService.refresh(new RefreshRequest(login.refreshToken())));
+        assertThrows(InvalidRefreshTokenException.class,
+                () -> authService.refresh(new RefreshRequest(rotated.refreshToken())));
+    }
+
+    @Test
+    void logout_revokesAccessAndRefreshTokens() {
+        userRepository.save(new User("logout@example.com", passwordEncoder.encode("secret")));
+        TokenResponse login = authService.login(new LoginRequest("logout@example.com", "secret"));
+        String tokenId = jwtService.verify(login.token()).tokenId();
+        assertFalse(revocations.isRevoked(tokenId));
+
+        authService.logout(login.token(), login.refreshToken());
+
+        assertTrue(revocations.isRevoked(tokenId));
+        assertTrue(revokedTokenRepository.existsByTokenId(tokenId));
+        assertThrows(InvalidRefreshTokenException.class,
+                () -> authService.refresh(new RefreshRequest(login.refreshToken())));
+    }
+
+    @Test
+    void sync_picksUpRevocationsFromOtherNodes() {
+        String tokenId = UUID.randomUUID().toString();
+        revokedTokenRepository.save(new RevokedToken(tokenId, LocalDateTime.now().plusMinutes(15)));
+        assertFalse(revocations.isRevoked(tokenId));
+
+        revocations.sync();
+
+        assertTrue(revocations.isRevoked(tokenId));
+        revocations.rebuild();
+        assertTrue(revocations.isRevoked(tokenId));
+    }
+
+    @Test
+    void calibrate_staysWithinBounds() {
+        assertEquals(5, BCryptCost.calibrate(Duration.ofNanos(1), 5, 8).value());
+        assertEquals(8, BCryptCost.calibrate(Duration.ofHours(1), 5, 8).value());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.shopbackend.demo.security;
+
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.shopbackend.demo.user.User;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Run explicitly: mvn test -Dtest=JwtAuthFilterBenchmark
+public class JwtAuthFilterBenchmark {
+
+    private static final String SECRET = "testsecretthatisatleastthirtytwocharacterslong";
+    private static final int ITERATIONS = 200_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void filterCostPerRequest() throws Exception {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        JwtService uncached = new JwtService(SECRET, 60, new VerifiedTokenCache(new SimpleMeterRegistry(), 0));
+        JwtService cached = new JwtService(SECRET, 60, new VerifiedTokenCache(new SimpleMeterRegistry(), 10_000));
+
+        User user = new User("bench@example.com", "hash");
+        ReflectionTestUtils.setField(user, "id", 1L);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + cached.generateToken(user));
+
+        Filter threeParses = () -> legacyFilter(request, key);
+        TokenRevocations revocations = new TokenRevocations(mock(RevokedTokenRepository.class),
+                new SimpleMeterRegistry(), 1000, 0.01, false, Duration.ofHours(1), Duration.ofHours(1),
+                Duration.ofMinutes(1));
+        Filter singleParse = filter(new JwtAuthFilter(uncached, revocations), request);
+        Filter cachedParse = filter(new JwtAuthFilter(cached, revocations), request);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String label = round < 2 ? "warmup " : "";
+            report(label + "three parses per request", measure(threeParses));
+            report(label + "single parse, reused parser", measure(singleParse));
+            report(label + "verified-token cache", measure(cachedParse));
+        }
+        revocations.destroy();
+    }
+
+    private static Filter filter(JwtAuthFilter filter, MockHttpServletRequest request) {
+        return () -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    // What JwtAuthFilter did before: isValid, extractEmail and extractRole each built a parser and checked the signature
+    private static void legacyFilter(MockHttpServletRequest request, SecretKey key) {
+        String token = request.getHeader("Authorization").substring("Bearer ".length()).trim();
+        parse(token, key);
+        String email = parse(token, key).getSubject();
+        String role = parse(token, key).get("role", String.class);
+
+        var authentication = new UsernamePasswordAuthenticationToken(email, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    private static Claims parse(String token, SecretKey key) {
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    private static double measure(Filter filter) throws Exception {
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            filter.run();
+            SecurityContextHolder.clearContext();
+        }
+        return (System.nanoTime() - started) / (double) ITERATIONS;
+    }
+
+    private static void report(String label, double nanosPerRequest) {
+        System.out.printf("%-45s %8.0f ns/request%n", label, nanosPerRequest);
+    }
+
+    @FunctionalInterface
+    private interface Filter {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.shopbackend.demo.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.shopbackend.demo.security.VerifiedTokenCache.VerifiedToken;
+import com.example.shopbackend.demo.user.Role;
+import com.example.shopbackend.demo.user.User;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JwtAuthFilterTest {
+
+    static final String SECRET = "testsecretthatisatleastthirtytwocharacterslong";
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    JwtService jwtService = new JwtService(SECRET, 60, new VerifiedTokenCache(meterRegistry, 100));
+    TokenRevocations revocations = new TokenRevocations(mock(RevokedTokenRepository.class), meterRegistry, 1000, 0.01,
+            false, Duration.ofHours(1), Duration.ofHours(1), Duration.ofMinutes(1));
+    JwtAuthFilter filter = new JwtAuthFilter(jwtService, revocations);
+
+    @AfterEach
+    void clearAuthentication() {
+        revocations.destroy();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validToken_installsTypedPrincipal() throws Exception {
+        User user = new User("admin@example.com", "hash");
+        user.setRole(Role.ADMIN);
+        ReflectionTestUtils.setField(user, "id", 42L);
+
+        Authentication authentication = filter(jwtService.generateToken(user));
+
+        assertEquals(new AuthenticatedUser(42, "admin@example.com", Role.ADMIN), authentication.getPrincipal());
+        assertEquals("admin@example.com", authentication.getName());
+        assertEquals("ROLE_ADMIN", authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .findFirst()
+                .orElseThrow());
+    }
+
+    @Test
+    void repeatedToken_verifiedOnce() throws Exception {
+        User user = new User("repeat@example.com", "hash");
+        ReflectionTestUtils.setField(user, "id", 7L);
+        String token = jwtService.generateToken(user);
+
+        for (int i = 0; i < 3; i++) {
+            SecurityContextHolder.clearContext();
+            assertEquals(7L, ((AuthenticatedUser) filter(token).getPrincipal()).id());
+        }
+
+        assertEquals(1, meterRegistry.get("auth.token_cache").tag("result", "miss").counter().count());
+        assertEquals(2, meterRegistry.get("auth.token_cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void cachedToken_rejectedOnceExpired() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(new SimpleMeterRegistry(), 100);
+        AuthenticatedUser user = new AuthenticatedUser(1, "expired@example.com", Role.USER);
+        AtomicInteger verified = new AtomicInteger();
+
+        cache.get("token", token -> {
+            verified.incrementAndGet();
+            return new VerifiedToken(user, "id", System.currentTimeMillis() - 1);
+        });
+
+        assertNull(cache.get("token", token -> {
+            verified.incrementAndGet();
+            return new VerifiedToken(user, "id", Long.MAX_VALUE);
+        }));
+        assertEquals(1, verified.get());
+    }
+
+    @Test
+    void cachedToken_nonAsciiTokensKeptApart() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(new SimpleMeterRegistry(), 100);
+        AuthenticatedUser first = new AuthenticatedUser(1, "first@example.com", Role.USER);
+        AuthenticatedUser second = new AuthenticatedUser(2, "second@example.com", Role.USER);
+
+        cache.get("tok\u00e9n", token -> new VerifiedToken(first, "a", Long.MAX_VALUE));
+        VerifiedToken other = cache.get("tok\u00ean", token -> new VerifiedToken(second, "b", Long.MAX_VALUE));
+
+        assertEquals(second, other.user());
+    }
+
+    @Test
+    void revokedToken_leavesRequestUnauthenticated() throws Exception {
+        User user = new User("revoked@example.com", "hash");
+        ReflectionTestUtils.setField(user, "id", 8L);
+        String token = jwtService.generateToken(user);
+        assertEquals(8L, ((AuthenticatedUser) filter(token).getPrincipal()).id());
+        SecurityContextHolder.clearContext();
+
+        revocations.revoke(jwtService.verify(token).tokenId(), LocalDateTime.now().plusHours(1));
+
+        assertNull(filter(token));
+    }
+
+    @Test
+    void tamperedToken_leavesRequestUnauthenticated() throws Exception {
+        User user = new User("tampered@example.com", "hash");
+        ReflectionTestUtils.setField(user, "id", 9L);
+        String token = jwtService.generateToken(user);
+
+        assertNull(filter(token.substring(0, token.length() - 2) + "xx"));
+    }
+
+    @Test
+    void tokenWithoutUserId_leavesRequestUnauthenticated() throws Exception {
+        String legacy = Jwts.builder()
+                .subject("old@example.com")
+                .claim("role", Role.USER.name())
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertNull(filter(legacy));
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.shopbackend.demo.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.shopbackend.demo.common.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PasswordHashingTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    PasswordHashing hashing;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (hashing != null)
+            hashing.destroy();
+    }
+
+    @Test
+    void matchesAndEncode_useConfiguredCost() {
+        hashing = hashing(new BCryptPasswordEncoder(4), 2, 4, Duration.ofSeconds(5));
+
+        String hash = hashing.encode("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(hashing.matches("secret", hash));
+        assertFalse(hashing.matches("wrong", hash));
+        assertFalse(hashing.needsRehash(hash));
+        assertFalse(hashing.needsRehash(new BCryptPasswordEncoder(5).encode("secret")));
+    }
+
+    @Test
+    void needsRehash_onlyBelowConfiguredCost() throws Exception {
+        hashing = new PasswordHashing(new BCryptPasswordEncoder(5), new BCryptCost(5), meterRegistry, 1, 4,
+                Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+        assertTrue(hashing.needsRehash(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(hashing.needsRehash(new BCryptPasswordEncoder(5).encode("secret")));
+        assertFalse(hashing.needsRehash(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(hashing.needsRehash("{noop}secret"));
+
+        CompletableFuture<String> rehashed = new CompletableFuture<>();
+        hashing.rehash("secret", rehashed::complete);
+        assertTrue(rehashed.get(5, TimeUnit.SECONDS).startsWith("$2a$05$"));
+    }
+
+    @Test
+    void saturatedPool_failsFastWithBusy() throws Exception {
+        hashing = hashing(blockingEncoder(), 1, 1, Duration.ofSeconds(5));
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> hashing.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> hashing.matches("b", "hash"));
+        awaitQueued(1);
+
+        PasswordHashingBusyException busy = assertThrows(PasswordHashingBusyException.class,
+                () -> hashing.matches("c", "hash"));
+
+        assertEquals(2, busy.getCapacity());
+        assertEquals(1, busy.getRetryAfterSeconds());
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("auth.password_hashing.rejected").tag("reason", "queue_full")
+                .counter().count());
+    }
+
+    @Test
+    void queuedTooLong_skippedWithBusy() throws Exception {
+        hashing = hashing(blockingEncoder(), 1, 4, Duration.ofMillis(50));
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> hashing.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> hashing.matches("b", "hash"));
+        awaitQueued(1);
+
+        Thread.sleep(100);
+        release.countDown();
+
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        Exception failure = assertThrows(Exception.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof PasswordHashingBusyException);
+        assertEquals(1, meterRegistry.get("auth.password_hashing.rejected").tag("reason", "queue_time")
+                .counter().count());
+    }
+
+    private PasswordHashing hashing(PasswordEncoder encoder, int threads, int queueCapacity, Duration maxQueueTime) {
+        return new PasswordHashing(encoder, new BCryptCost(4), meterRegistry, threads, queueCapacity, maxQueueTime,
+                Duration.ofSeconds(1));
+    }
+
+    private PasswordEncoder blockingEncoder() {
+        return new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+    }
+
+    private void awaitQueued(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("auth.password_hashing.queue.depth").gauge().value() < depth
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.shopbackend.demo.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Run explicitly: mvn test -Dtest=RateLimitFilterBenchmark
+public class RateLimitFilterBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 200_000;
+    private static final int CLIENTS = 50_000;
+
+    @Test
+    void filterOverheadPerRequest() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(new ObjectMapper(), new SimpleMeterRegistry(), true, 100_000,
+                Duration.ofMinutes(1), List.of(), Integer.MAX_VALUE / 2, Duration.ofMinutes(1), 5, Duration.ofMinutes(1), 30,
+                Duration.ofMinutes(1));
+        try {
+            for (int round = 0; round < 4; round++) {
+                String label = round < 2 ? "warmup " : "";
+                report(label + "no filter", run(null));
+                report(label + "rate limit filter", run(filter));
+            }
+        } finally {
+            filter.destroy();
+        }
+    }
+
+    private static double run(RateLimitFilter filter) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    MockHttpServletRequest[] requests = requests(thread);
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    start.await();
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        MockHttpServletRequest request = requests[i % requests.length];
+                        request.removeAttribute(RateLimitFilter.class.getName() + ".FILTERED");
+                        if (filter == null)
+                            new MockFilterChain().doFilter(request, response);
+                        else
+                            filter.doFilter(request, response, new MockFilterChain());
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get();
+            // wall time over all requests, so the figure is cost per request whatever the core count
+            return (System.nanoTime() - started) / (double) (THREADS * REQUESTS_PER_THREAD);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static MockHttpServletRequest[] requests(int thread) {
+        MockHttpServletRequest[] requests = new MockHttpServletRequest[CLIENTS / THREADS];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new MockHttpServletRequest("POST", "/auth/login");
+            requests[i].setRemoteAddr("10." + thread + "." + (i >> 8) + "." + (i & 0xff));
+        }
+        return requests;
+    }
+
+    private static void report(String label, double nanosPerRequest) {
+        System.out.printf("%-30s %8.0f ns/request%n", label, nanosPerRequest);
+    }
+}
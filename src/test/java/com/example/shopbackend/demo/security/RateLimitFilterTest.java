@@ -0,0 +1,130 @@
+package com.example.shopbackend.demo.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.shopbackend.demo.user.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RateLimitFilterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RateLimitFilter filter = new RateLimitFilter(new ObjectMapper(), meterRegistry, true, 1000, Duration.ofMinutes(1),
+            List.of("10.1.0.0/16"), 2, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 2, Duration.ofMinutes(1));
+
+    @AfterEach
+    void tearDown() {
+        filter.destroy();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void login_overLimit_returns429WithRetryAfter() throws Exception {
+        assertEquals(200, send("POST", "/auth/login", "10.0.0.1").getStatus());
+        assertEquals(200, send("POST", "/auth/login", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse limited = send("POST", "/auth/login", "10.0.0.1");
+
+        assertEquals(429, limited.getStatus());
+        assertEquals("30", limited.getHeader("Retry-After"));
+        assertTrue(limited.getContentAsString().contains("RATE_LIMITED"));
+        assertEquals(200, send("POST", "/auth/login", "10.0.0.2").getStatus());
+        assertEquals(200, send("POST", "/auth/register", "10.0.0.1").getStatus());
+        assertEquals(1, meterRegistry.get("http.rate_limit.rejected").tag("route", "login").counter().count());
+    }
+
+    @Test
+    void orderCreate_keyedByUserAcrossAddresses() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new AuthenticatedUser(1, "a@example.com", Role.USER).toAuthentication());
+        send("POST", "/orders", "10.0.0.1");
+        send("POST", "/orders", "10.0.0.2");
+
+        assertEquals(429, send("POST", "/orders", "10.0.0.3").getStatus());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new AuthenticatedUser(2, "b@example.com", Role.USER).toAuthentication());
+        assertEquals(200, send("POST", "/orders", "10.0.0.3").getStatus());
+    }
+
+    @Test
+    void login_behindTrustedProxy_keyedByForwardedClient() throws Exception {
+        assertEquals(200, send("POST", "/auth/login", "10.1.0.5", "203.0.113.7").getStatus());
+        assertEquals(200, send("POST", "/auth/login", "10.1.0.6", "203.0.113.7, 10.1.0.5").getStatus());
+
+        // a spoofed leftmost entry does not move the client to a fresh bucket
+        assertEquals(429, send("POST", "/auth/login", "10.1.0.5", "198.51.100.1, 203.0.113.7").getStatus());
+        assertEquals(200, send("POST", "/auth/login", "10.1.0.5", "203.0.113.8").getStatus());
+    }
+
+    @Test
+    void login_forwardedHeaderFromUntrustedPeer_ignored() throws Exception {
+        send("POST", "/auth/login", "10.0.0.9", "203.0.113.1");
+        send("POST", "/auth/login", "10.0.0.9", "203.0.113.2");
+
+        assertEquals(429, send("POST", "/auth/login", "10.0.0.9", "203.0.113.3").getStatus());
+    }
+
+    @Test
+    void otherRoutes_neverLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, send("GET", "/orders", "10.0.0.1").getStatus());
+            assertEquals(200, send("POST", "/orders/cancel", "10.0.0.1").getStatus());
+        }
+    }
+
+    @Test
+    void buckets_refillAndIdleOnesAreEvicted() {
+        TokenBuckets buckets = new TokenBuckets(1000);
+        long period = TimeUnit.SECONDS.toNanos(10);
+        long now = 1_000_000_000L;
+
+        assertEquals(0, buckets.tryAcquire("a", 2, period, now));
+        assertEquals(0, buckets.tryAcquire("a", 2, period, now));
+        assertEquals(period / 2, buckets.tryAcquire("a", 2, period, now));
+        assertEquals(0, buckets.tryAcquire("a", 2, period, now + period / 2));
+
+        buckets.evictIdle(now + period / 2);
+        assertEquals(1, buckets.size());
+        buckets.evictIdle(now + 2 * period);
+        assertEquals(0, buckets.size());
+    }
+
+    @Test
+    void buckets_boundedUnderManyDistinctKeys() {
+        TokenBuckets buckets = new TokenBuckets(1000);
+
+        for (int i = 0; i < 100_000; i++)
+            buckets.tryAcquire("client-" + i, 5, TimeUnit.MINUTES.toNanos(1), 0);
+
+        assertTrue(buckets.size() <= 1000, "tracked " + buckets.size());
+    }
+
+    private MockHttpServletResponse send(String method, String path, String address) throws Exception {
+        return send(method, path, address, null);
+    }
+
+    private MockHttpServletResponse send(String method, String path, String address, String forwardedFor)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(address);
+        if (forwardedFor != null)
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}